@@ -0,0 +1,93 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.BookstoreApplication;
+import com.example.demo.models.Book;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic catalog and an embedded H2 stand-in for MySQL shared by the benchmarks.
+ */
+public final class BenchmarkData {
+
+    private static final String[] WORDS = {
+            "night", "river", "shadow", "garden", "empire", "winter", "silent", "glass", "storm", "letters",
+            "kingdom", "secret", "journey", "house", "memory", "ocean", "last", "lost", "golden", "city",
+            "stranger", "fire", "dream", "mountain", "war", "sea", "road", "promise", "forest", "stone"};
+
+    private static final String[] FIRST_NAMES = {
+            "Anna", "Jorge", "Haruki", "Toni", "Fyodor", "Virginia", "Gabriel", "Chimamanda", "Italo", "Ursula"};
+
+    private BenchmarkData() {
+    }
+
+    public static List<Book> books(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Book book = new Book();
+            book.setId(i);
+            book.setTitle(title(random));
+            book.setAuthor(author(random, count));
+            book.setDescription("A novel about " + WORDS[random.nextInt(WORDS.length)] + " and " + WORDS[random.nextInt(WORDS.length)] + ".");
+            book.setYear(1900 + random.nextInt(125));
+            books.add(book);
+        }
+        return books;
+    }
+
+    /**
+     * Authors follow a skewed distribution: a few write many books, most write a handful.
+     */
+    public static String author(SplittableRandom random, int catalogSize) {
+        int authors = Math.max(10, catalogSize / 20);
+        int index = (int) Math.floor(Math.pow(random.nextDouble(), 3) * authors);
+        return FIRST_NAMES[index % FIRST_NAMES.length] + " Author" + index;
+    }
+
+    public static String title(SplittableRandom random) {
+        int words = 2 + random.nextInt(4);
+        StringBuilder title = new StringBuilder();
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                title.append(' ');
+            }
+            String word = WORDS[random.nextInt(WORDS.length)];
+            title.append(w == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+        }
+        return title.toString();
+    }
+
+    /**
+     * Boots the application without a web server against a fresh in-memory H2 database.
+     */
+    public static ConfigurableApplicationContext startApplication(String database, String... properties) {
+        List<String> all = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR;IGNORE_UNKNOWN_SETTINGS=TRUE;DB_CLOSE_DELAY=-1",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "logging.level.root=WARN"));
+        all.addAll(List.of(properties));
+        // Passed as command-line arguments so they take precedence over application.properties.
+        return new SpringApplicationBuilder(BookstoreApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(all.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    public static void seed(JdbcTemplate jdbcTemplate, List<Book> books) {
+        jdbcTemplate.batchUpdate("INSERT INTO books (id, title, author, description, year) VALUES (?, ?, ?, ?, ?)",
+                books, 5000, (ps, book) -> {
+                    ps.setInt(1, book.getId());
+                    ps.setString(2, book.getTitle());
+                    ps.setString(3, book.getAuthor());
+                    ps.setString(4, book.getDescription());
+                    ps.setInt(5, book.getYear());
+                });
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.dtos.ResponseBodyDTO;
+import com.example.demo.exceptions.BookNotFoundException;
+import com.example.demo.exceptions.PageNotFoundException;
+import com.example.demo.middlewares.GlobalExceptionHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Not-found path: throwing the domain exception from a few frames down and turning it into a 404 body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExceptionHandlerBenchmark {
+
+    private GlobalExceptionHandler handler;
+
+    @Setup
+    public void setUp() {
+        handler = new GlobalExceptionHandler(new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public ResponseEntity<ResponseBodyDTO> bookNotFound() {
+        try {
+            return lookup(8);
+        } catch (BookNotFoundException ex) {
+            return handler.handleBookNotFoundException(ex);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<ResponseBodyDTO> pageNotFound() {
+        try {
+            throw new PageNotFoundException("Page does not exist.");
+        } catch (PageNotFoundException ex) {
+            return handler.handleBookNotFoundException(ex);
+        }
+    }
+
+    private static ResponseEntity<ResponseBodyDTO> lookup(int depth) {
+        if (depth == 0) {
+            throw new BookNotFoundException("Book not found.");
+        }
+        return lookup(depth - 1);
+    }
+}
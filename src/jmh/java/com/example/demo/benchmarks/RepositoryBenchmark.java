@@ -0,0 +1,98 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.models.Book;
+import com.example.demo.repositories.BookRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BookRepository query shapes against an embedded H2 database seeded with a synthetic catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private BookRepository bookRepository;
+    private String author;
+    private int deepPage;
+    private Integer deepCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkData.startApplication("repository", "bookstore.search.index.enabled=false", "bookstore.existence-filter.enabled=false");
+        List<Book> books = BenchmarkData.books(rows, 42);
+        BenchmarkData.seed(context.getBean(JdbcTemplate.class), books);
+        bookRepository = context.getBean(BookRepository.class);
+        author = books.get(0).getAuthor();
+        deepPage = rows / 10 - 1;
+        deepCursor = rows - 10;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<BookSummary> findAllFirstPage() {
+        return bookRepository.findAllBy(PageRequest.of(0, 10));
+    }
+
+    @Benchmark
+    public Slice<BookSummary> findAllFirstPageWithoutCount() {
+        return bookRepository.findSliceBy(PageRequest.of(0, 10));
+    }
+
+    @Benchmark
+    public Page<BookSummary> findAllDeepPage() {
+        return bookRepository.findAllBy(PageRequest.of(deepPage, 10));
+    }
+
+    @Benchmark
+    public Slice<BookSummary> seekDeepSlice() {
+        return bookRepository.findByIdGreaterThanOrderByIdAsc(deepCursor, PageRequest.ofSize(10));
+    }
+
+    @Benchmark
+    public Page<BookSummary> findByAuthor() {
+        return bookRepository.findByAuthor(author, PageRequest.of(0, 10));
+    }
+
+    @Benchmark
+    public Slice<BookSummary> findByAuthorWithoutCount() {
+        return bookRepository.findSliceByAuthor(author, PageRequest.of(0, 10));
+    }
+
+    @Benchmark
+    public Page<BookSummary> findByTitleContaining() {
+        return bookRepository.findByTitleContainingIgnoreCase("storm", PageRequest.of(0, 10));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.dtos.ResponseBodyDTO;
+import com.example.demo.models.Book;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building and serializing a listing response the way BookController does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseBodyBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int pageSize;
+
+    private List<Book> books;
+    private List<BookSummary> summaries;
+    private ResponseBodyDTO response;
+    private ResponseBodyDTO summaryResponse;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        books = BenchmarkData.books(pageSize, 42);
+        // Same defaults Spring Boot applies to the MVC ObjectMapper.
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        response = buildResponse();
+        summaries = books.stream().map(BookSummary::of).toList();
+        summaryResponse = ResponseBodyDTO.builder()
+                .status(200)
+                .message("Books retrieved successfully.")
+                .data(summaries)
+                .build();
+    }
+
+    @Benchmark
+    public ResponseBodyDTO buildResponse() {
+        ResponseBodyDTO.MetadataDTO paginationInfo = ResponseBodyDTO.MetadataDTO.builder()
+                .page(1)
+                .size(pageSize)
+                .totalPages(100)
+                .totalItems(100L * pageSize)
+                .build();
+
+        return ResponseBodyDTO.builder()
+                .status(200)
+                .message("Books retrieved successfully.")
+                .data(books)
+                .metadata(paginationInfo)
+                .build();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    /**
+     * Same page as the projected list view, without the description column.
+     */
+    @Benchmark
+    public byte[] serializeSummaries() throws Exception {
+        return objectMapper.writeValueAsBytes(summaryResponse);
+    }
+
+    @Benchmark
+    public byte[] buildAndSerialize() throws Exception {
+        return objectMapper.writeValueAsBytes(buildResponse());
+    }
+}
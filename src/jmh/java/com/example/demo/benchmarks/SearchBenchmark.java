@@ -0,0 +1,77 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.catalog.BookCatalog;
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.models.Book;
+import com.example.demo.repositories.BookRepository;
+import com.example.demo.search.BookSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Title search latency distribution: trigram index versus the LIKE query it replaces.
+ * Run with {@code -p rows=1000000} for the million-row comparison; percentiles are in the JSON report.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"storm", "golden city", "ocean"})
+    public String query;
+
+    private ConfigurableApplicationContext context;
+    private BookRepository bookRepository;
+    private BookSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkData.startApplication("search", "bookstore.search.index.enabled=false");
+        List<Book> books = BenchmarkData.books(rows, 42);
+        BenchmarkData.seed(context.getBean(JdbcTemplate.class), books);
+        bookRepository = context.getBean(BookRepository.class);
+        index = new BookSearchIndex(true);
+        new BookCatalog(bookRepository, List.of(index), 5000, Duration.ZERO, Duration.ZERO).load();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<BookSummary> index() {
+        List<Integer> ids = index.search(query).orElseThrow();
+        return bookRepository.findByIdIn(ids.subList(0, Math.min(10, ids.size())));
+    }
+
+    @Benchmark
+    public Page<BookSummary> like() {
+        return bookRepository.findByTitleContainingIgnoreCase(query, PageRequest.of(0, 10));
+    }
+}
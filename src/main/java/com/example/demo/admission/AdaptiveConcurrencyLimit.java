@@ -0,0 +1,158 @@
+package com.example.demo.admission;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the requests in flight to what the database sustains, learning the limit from its latency.
+ * <p>
+ * A gradient limit, fed by {@link com.example.demo.datasource.ConnectionTimingDataSource}: every released
+ * connection reports how long its caller queued for it and how long it was held. Without a queue the wait is
+ * close to nothing, so the share of the latency spent holding the connection is the gradient; it needs no
+ * estimate of the unloaded latency, which would drift under sustained load or with the query mix. While the
+ * wait stays within half the hold time, the limit grows by its square root per sample; beyond that it shrinks
+ * in proportion, down to half per sample. Changes are smoothed over several samples, and the limit does not
+ * grow while less than half of it is in use, so a quiet period cannot inflate it. A request that ends in 503,
+ * such as a connection timeout, takes a tenth off the limit.
+ * <p>
+ * Each {@link Priority} may only fill its share of the limit, so as the limit shrinks the expensive classes
+ * are turned away first and cheap reads last.
+ */
+@Component
+public class AdaptiveConcurrencyLimit {
+
+    /**
+     * Request classes and the share of the limit each may fill.
+     */
+    public enum Priority {
+        /** Reads by id, author or listing, mostly answered from caches and indexes. */
+        READ(1.0),
+        /** Creates and deletes. */
+        WRITE(0.75),
+        /** Title searches, which fall back to a scan when the search index cannot serve them. */
+        SEARCH(0.5);
+
+        private final double share;
+
+        Priority(double share) {
+            this.share = share;
+        }
+    }
+
+    private static final double SMOOTHING = 0.2;
+    private static final double WAIT_TOLERANCE = 1.5;
+    private static final double DROP_BACKOFF = 0.9;
+    private static final int WINDOW = 10;
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+
+    // Guarded by this.
+    private double waitNanos = -1;
+    private double holdNanos;
+
+    public AdaptiveConcurrencyLimit(@Value("${bookstore.admission.concurrency.enabled:true}") boolean enabled,
+                                    @Value("${bookstore.admission.concurrency.initial-limit:20}") int initialLimit,
+                                    @Value("${bookstore.admission.concurrency.min-limit:4}") int minLimit,
+                                    @Value("${bookstore.admission.concurrency.max-limit:200}") int maxLimit,
+                                    MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+
+        Gauge.builder("bookstore.admission.limit", this, AdaptiveConcurrencyLimit::getLimit)
+                .description("Requests allowed in flight")
+                .register(meterRegistry);
+        Gauge.builder("bookstore.admission.in-flight", inFlight, AtomicInteger::get)
+                .description("Admitted requests in flight")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Admits a request if its class has room under the limit. Every admitted request must be followed by
+     * {@link #release}.
+     */
+    public boolean tryAcquire(Priority priority) {
+        if (!enabled) {
+            return true;
+        }
+        int allowed = Math.max(1, (int) (limit * priority.share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ends an admitted request, {@code dropped} if it failed because the database was overloaded.
+     */
+    public void release(boolean dropped) {
+        if (!enabled) {
+            return;
+        }
+        inFlight.decrementAndGet();
+        if (dropped) {
+            backOff();
+        }
+    }
+
+    /**
+     * Records a connection that was waited for {@code waitNanos} and then held for {@code holdNanos}.
+     */
+    public synchronized void onConnectionReleased(long waitNanos, long holdNanos) {
+        if (!enabled) {
+            return;
+        }
+        if (this.waitNanos < 0) {
+            this.waitNanos = waitNanos;
+            this.holdNanos = holdNanos;
+        } else {
+            this.waitNanos += (waitNanos - this.waitNanos) / WINDOW;
+            this.holdNanos += (holdNanos - this.holdNanos) / WINDOW;
+        }
+        double current = limit;
+        if (inFlight.get() < current / 2) {
+            return;
+        }
+
+        double latency = this.waitNanos + this.holdNanos;
+        double gradient = latency == 0 ? 1.0
+                : Math.max(0.5, Math.min(1.0, WAIT_TOLERANCE * this.holdNanos / latency));
+        double target = current * gradient + Math.sqrt(current);
+        limit = clamp(current * (1 - SMOOTHING) + target * SMOOTHING);
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void backOff() {
+        limit = clamp(limit * DROP_BACKOFF);
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-client token buckets: a client may send {@code bookstore.admission.rate-limit.burst} requests at once and
+ * {@code requests-per-second} on average.
+ * <p>
+ * Buckets refill lazily on access. A bucket left alone long enough to refill completely is dropped, which
+ * loses nothing; past {@code max-clients}, the least used buckets are dropped early, which at worst grants
+ * their clients a fresh burst.
+ * <p>
+ * Off by default: clients are keyed on their remote address, which behind a proxy is the proxy's unless
+ * {@code server.forward-headers-strategy} is set, and all traffic would then share one bucket.
+ */
+@Component
+public class ClientRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientRateLimiter.class);
+
+    private final boolean enabled;
+    private final double tokensPerNano;
+    private final double burst;
+    private final LongSupplier nanoClock;
+    private final Cache<String, Bucket> buckets;
+
+    @Autowired
+    public ClientRateLimiter(@Value("${bookstore.admission.rate-limit.enabled:false}") boolean enabled,
+                             @Value("${bookstore.admission.rate-limit.requests-per-second:100}") double requestsPerSecond,
+                             @Value("${bookstore.admission.rate-limit.burst:200}") int burst,
+                             @Value("${bookstore.admission.rate-limit.max-clients:100000}") int maxClients,
+                             @Value("${server.forward-headers-strategy:none}") String forwardHeadersStrategy) {
+        this(enabled, requestsPerSecond, burst, maxClients, System::nanoTime);
+        if (enabled && "none".equalsIgnoreCase(forwardHeadersStrategy)) {
+            logger.warn("Rate limiting by remote address without server.forward-headers-strategy; "
+                    + "behind a proxy all clients share one bucket.");
+        }
+    }
+
+    ClientRateLimiter(boolean enabled, double requestsPerSecond, int burst, int maxClients, LongSupplier nanoClock) {
+        this.enabled = enabled;
+        this.tokensPerNano = requestsPerSecond / 1_000_000_000.0;
+        this.burst = burst;
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofNanos((long) Math.ceil(burst / tokensPerNano)))
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Takes a token from the client's bucket.
+     *
+     * @return 0 if the request is allowed, otherwise the nanoseconds until the bucket has a token again
+     */
+    public long tryAcquire(String client) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = nanoClock.getAsLong();
+        return buckets.get(client, key -> new Bucket(burst, now)).tryAcquire(now);
+    }
+
+    private final class Bucket {
+
+        private double tokens;
+        private long refilledAt;
+
+        Bucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+
+        synchronized long tryAcquire(long now) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.demo.cache;
+
+import com.example.demo.utils.TextFolding;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Already-encoded listing responses, keyed by request and by the generation of the data they were built from.
+ * <p>
+ * Writes never touch the entries. They advance a generation counter instead: the global one on every write,
+ * plus the counter of the book's author, or of every author when the author is not known. A page's key
+ * includes the generations it depends on, so after a write its old entry is never asked for again and
+ * simply ages out. Authors share {@value #AUTHOR_STRIPES} counters by hash, so a write can at worst also
+ * evict the pages of an unrelated author.
+ * <p>
+ * Generations only see writes made through this instance; {@code bookstore.response-cache.ttl} bounds how
+ * long a page can miss a write made through another one.
+ */
+@Component
+public class ResponseCache {
+
+    private static final int AUTHOR_STRIPES = 4096;
+    private static final int GZIP_MIN_SIZE = 1024;
+
+    private final boolean enabled;
+    private final boolean gzip;
+    private final Cache<String, Entry> entries;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong authorsGeneration = new AtomicLong();
+    private final AtomicLongArray authorGenerations = new AtomicLongArray(AUTHOR_STRIPES);
+
+    public ResponseCache(@Value("${bookstore.response-cache.enabled:true}") boolean enabled,
+                         @Value("${bookstore.response-cache.max-size:64MB}") DataSize maxSize,
+                         @Value("${bookstore.response-cache.ttl:30s}") Duration ttl,
+                         @Value("${bookstore.response-cache.gzip:true}") boolean gzip,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.gzip = gzip;
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, Entry entry) -> key.length() + entry.body().length)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // Same tag keys as the Spring-managed caches, which Prometheus requires for meters sharing a name.
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "responses",
+                Tags.of("cache.manager", "responseCache", "name", "responses"));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Generation of the pages listing books by the given author, or of the pages listing all books when
+     * {@code author} is null. Part of the cache key of those pages.
+     */
+    public String generation(String author) {
+        if (author == null) {
+            return "g" + generation.get();
+        }
+        return "a" + authorsGeneration.get() + "." + authorGenerations.get(stripe(author));
+    }
+
+    /**
+     * Records a create or delete of a book by the given author, or by an unknown author when null.
+     */
+    public void invalidate(String author) {
+        generation.incrementAndGet();
+        if (author == null) {
+            authorsGeneration.incrementAndGet();
+        } else {
+            authorGenerations.incrementAndGet(stripe(author));
+        }
+    }
+
+    public Entry get(String key) {
+        return entries.getIfPresent(key);
+    }
+
+    /**
+     * Stores a response body, gzip-compressed when enabled and large enough to benefit.
+     */
+    public void put(String key, byte[] body, String contentType, String eTag, String lastModified) {
+        boolean compress = gzip && body.length >= GZIP_MIN_SIZE;
+        entries.put(key, new Entry(compress ? gzip(body) : body, compress, contentType, eTag, lastModified));
+    }
+
+    private static int stripe(String author) {
+        return Math.floorMod(TextFolding.fold(author).hashCode(), AUTHOR_STRIPES);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    public record Entry(byte[] body, boolean gzipped, String contentType, String eTag, String lastModified) {
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.demo.catalog;
+
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.models.Book;
+import com.example.demo.repositories.BookRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Feeds every {@link BookCatalogListener} the books table, so that they follow it with a bounded lag.
+ * <p>
+ * After startup the table is scanned once, in keyset batches on a background thread, and each book is
+ * handed to all listeners. Writes made through this instance are forwarded as they happen. A delete that
+ * races with a scan is replayed once the scan ends, so a book deleted mid-scan cannot be resurrected by a
+ * stale batch.
+ * <p>
+ * Writes made through another instance, or directly, are found by scanning again:
+ * <ul>
+ * <li>every {@code bookstore.catalog.refresh-interval}, the ids above those already seen are handed to
+ * {@link BookCatalogListener#onLoaded}. Each re-scan starts from the highest id seen one re-scan earlier, not
+ * the latest: auto-increment ids are allocated before their transaction commits, so a lower id can become
+ * visible after a higher one. Books seen before are handed out again and listeners ignore them.</li>
+ * <li>every {@code bookstore.catalog.reconcile-interval}, the whole table is scanned again. Every book is
+ * handed out, and every id handed out before that is no longer in the table is passed to
+ * {@link BookCatalogListener#onDeleted}.</li>
+ * </ul>
+ */
+@Component
+public class BookCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookCatalog.class);
+
+    private final BookRepository bookRepository;
+    private final List<BookCatalogListener> listeners;
+    private final int loadBatchSize;
+    private final Duration refreshInterval;
+    private final Duration reconcileInterval;
+    private final ScheduledExecutorService refresher;
+
+    private final Set<Integer> deletedDuringScan = new HashSet<>();
+    private boolean scanning = true;
+    // Ids handed to the listeners since the last full scan, in no particular order. Guarded by deletedDuringScan.
+    private int[] seenIds = new int[1024];
+    private int seenCount;
+
+    // Only touched by the scans, which never overlap.
+    private int settledId;
+    private int latestId;
+    // Ids in the table at the last full scan, ascending.
+    private int[] reconciledIds = new int[0];
+
+    public BookCatalog(BookRepository bookRepository, List<BookCatalogListener> listeners,
+                       @Value("${bookstore.catalog.load-batch-size:5000}") int loadBatchSize,
+                       @Value("${bookstore.catalog.refresh-interval:30s}") Duration refreshInterval,
+                       @Value("${bookstore.catalog.reconcile-interval:10m}") Duration reconcileInterval) {
+        this.bookRepository = bookRepository;
+        this.listeners = listeners;
+        this.loadBatchSize = loadBatchSize;
+        this.refreshInterval = refreshInterval;
+        this.reconcileInterval = reconcileInterval;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "book-catalog-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        Thread loader = new Thread(this::load, "book-catalog-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public void load() {
+        long started = System.nanoTime();
+        Scan scan;
+        try {
+            IntStream.Builder ids = IntStream.builder();
+            scan = scan(0, ids);
+            settledId = scan.lastId();
+            latestId = scan.lastId();
+            reconciledIds = ids.build().toArray();
+        } catch (RuntimeException ex) {
+            logger.error("Book catalog load failed, in-memory lookups stay disabled.", ex);
+            synchronized (deletedDuringScan) {
+                deletedDuringScan.clear();
+                scanning = false;
+            }
+            return;
+        }
+        synchronized (deletedDuringScan) {
+            replayDeletes();
+            listeners.forEach(BookCatalogListener::onLoadCompleted);
+        }
+        logger.info("Book catalog loaded {} books in {} ms.", scan.count(), (System.nanoTime() - started) / 1_000_000);
+        schedule(this::refresh, refreshInterval);
+        schedule(this::reconcile, reconcileInterval);
+    }
+
+    /**
+     * Hands every book above the settled id to the listeners.
+     */
+    public void refresh() {
+        synchronized (deletedDuringScan) {
+            scanning = true;
+        }
+        try {
+            int lastId = scan(settledId, this::seen).lastId();
+            settledId = latestId;
+            latestId = Math.max(latestId, lastId);
+        } catch (RuntimeException ex) {
+            logger.warn("Book catalog refresh failed, retrying in {}.", refreshInterval, ex);
+        } finally {
+            synchronized (deletedDuringScan) {
+                replayDeletes();
+            }
+        }
+    }
+
+    /**
+     * Scans the whole table, hands every book to the listeners and deletes from them the books that are gone.
+     */
+    public void reconcile() {
+        int[] known;
+        int seenBefore;
+        synchronized (deletedDuringScan) {
+            scanning = true;
+            known = IntStream.concat(Arrays.stream(reconciledIds), Arrays.stream(seenIds, 0, seenCount))
+                    .sorted().distinct().toArray();
+            seenBefore = seenCount;
+        }
+        try {
+            IntStream.Builder ids = IntStream.builder();
+            Scan scan = scan(0, ids);
+            latestId = Math.max(latestId, scan.lastId());
+            int[] present = ids.build().toArray();
+            int gone = 0;
+            synchronized (deletedDuringScan) {
+                for (int id : known) {
+                    if (Arrays.binarySearch(present, id) < 0) {
+                        listeners.forEach(listener -> listener.onDeleted(id));
+                        gone++;
+                    }
+                }
+                // Books created while the scan ran may have committed behind it: check them next time.
+                seenIds = Arrays.copyOfRange(seenIds, seenBefore, seenBefore + Math.max(1024, 2 * (seenCount - seenBefore)));
+                seenCount -= seenBefore;
+            }
+            reconciledIds = present;
+            logger.info("Book catalog reconciled {} books, {} gone since the last full scan.", scan.count(), gone);
+        } catch (RuntimeException ex) {
+            logger.warn("Book catalog reconciliation failed, retrying in {}.", reconcileInterval, ex);
+        } finally {
+            synchronized (deletedDuringScan) {
+                replayDeletes();
+            }
+        }
+    }
+
+    public void created(Book book) {
+        seen(book.getId());
+        BookSummary summary = BookSummary.of(book);
+        listeners.forEach(listener -> listener.onCreated(summary));
+    }
+
+    public void deleted(Integer id) {
+        synchronized (deletedDuringScan) {
+            if (scanning) {
+                deletedDuringScan.add(id);
+            }
+        }
+        listeners.forEach(listener -> listener.onDeleted(id));
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    private void schedule(Runnable task, Duration interval) {
+        if (!interval.isZero() && !interval.isNegative()) {
+            refresher.scheduleWithFixedDelay(task, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void seen(int id) {
+        synchronized (deletedDuringScan) {
+            if (seenCount == seenIds.length) {
+                seenIds = Arrays.copyOf(seenIds, seenCount * 2);
+            }
+            seenIds[seenCount++] = id;
+        }
+    }
+
+    /**
+     * Hands every book above {@code afterId} to the listeners, in keyset batches, and its id to {@code seen}.
+     */
+    private Scan scan(int afterId, IntConsumer seen) {
+        int lastId = afterId;
+        long count = 0;
+        Slice<BookSummary> slice;
+        do {
+            slice = bookRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.ofSize(loadBatchSize));
+            for (BookSummary book : slice) {
+                listeners.forEach(listener -> listener.onLoaded(book));
+                seen.accept(book.id());
+                lastId = book.id();
+                count++;
+            }
+        } while (slice.hasNext());
+        return new Scan(lastId, count);
+    }
+
+    // Guarded by deletedDuringScan.
+    private void replayDeletes() {
+        for (Integer id : deletedDuringScan) {
+            listeners.forEach(listener -> listener.onDeleted(id));
+        }
+        deletedDuringScan.clear();
+        scanning = false;
+    }
+
+    private record Scan(int lastId, long count) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.catalog;
+
+import com.example.demo.dtos.BookSummary;
+
+/**
+ * In-memory structure derived from the books table. {@link BookCatalog} feeds it every book once at
+ * startup, then every create and delete made through this instance, and what its periodic scans find.
+ */
+public interface BookCatalogListener {
+
+    /**
+     * Called for every book found by scanning the table, at startup and by the periodic re-scans. A re-scan
+     * may hand out a book that was already loaded or created; adding it again must change nothing.
+     */
+    void onLoaded(BookSummary book);
+
+    /**
+     * Called once after the initial load, when the listener has seen every book.
+     */
+    void onLoadCompleted();
+
+    void onCreated(BookSummary book);
+
+    /**
+     * Called for every book deleted through this instance, and for every book a full re-scan no longer finds.
+     * An id may be deleted more than once; deleting an unknown id must change nothing.
+     */
+    void onDeleted(Integer id);
+}
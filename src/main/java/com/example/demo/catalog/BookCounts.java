@@ -0,0 +1,171 @@
+package com.example.demo.catalog;
+
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.repositories.BookRepository;
+import com.example.demo.utils.TextFolding;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Book counts for the paged endpoints, so that {@code count=approx} pages need no count query.
+ * <p>
+ * The total and the per-author counts are maintained from the catalog. Each counted id remembers its author,
+ * which makes adds and removes idempotent and lets a delete, which only carries the id, find its author.
+ * Title searches match arbitrary substrings and filtered listings combine several conditions, so neither can
+ * be maintained; their counts are cached for {@code bookstore.counts.query-ttl} instead. Books created through
+ * other instances are counted once the catalog's re-scan finds them, and their deletes once it reconciles.
+ */
+@Component
+public class BookCounts implements BookCatalogListener {
+
+    private final BookRepository bookRepository;
+    private final Cache<String, Long> queryCounts;
+
+    private final AtomicLong total = new AtomicLong();
+    private final Map<String, AtomicLong> authorCounts = new ConcurrentHashMap<>();
+
+    // Per id: one plus the index of the book's folded author in authors, or zero when the id is not counted.
+    // Ids are held in the array while at least half of it would be in use, and beyond it in the map, so a stray
+    // high id costs an entry, not an array up to it.
+    private int[] authorOf = new int[1024];
+    private final Map<Integer, Integer> sparseAuthorOf = new HashMap<>();
+    private final List<String> authors = new ArrayList<>();
+    private final Map<String, Integer> authorIndex = new HashMap<>();
+
+    private volatile boolean ready;
+
+    public BookCounts(BookRepository bookRepository,
+                      @Value("${bookstore.counts.query-ttl:60s}") Duration queryTtl,
+                      @Value("${bookstore.counts.query-max-entries:10000}") long queryMaxEntries) {
+        this.bookRepository = bookRepository;
+        this.queryCounts = Caffeine.newBuilder()
+                .maximumSize(queryMaxEntries)
+                .expireAfterWrite(queryTtl)
+                .build();
+    }
+
+    /**
+     * Number of books, or empty until the catalog has loaded.
+     */
+    public OptionalLong total() {
+        return ready ? OptionalLong.of(total.get()) : OptionalLong.empty();
+    }
+
+    /**
+     * Number of books by the author, compared case- and accent-insensitively, or empty until the catalog has
+     * loaded.
+     */
+    public OptionalLong byAuthor(String author) {
+        if (!ready) {
+            return OptionalLong.empty();
+        }
+        AtomicLong count = authorCounts.get(TextFolding.fold(author));
+        return OptionalLong.of(count == null ? 0 : count.get());
+    }
+
+    /**
+     * Number of books whose title contains the text, from the cache or from a count query.
+     */
+    public long byTitle(String title) {
+        String text = title.toLowerCase(Locale.ROOT);
+        return queryCounts.get("title:" + text, key -> bookRepository.countByTitleContainingIgnoreCase(text));
+    }
+
+    /**
+     * Number of books matching a filter, identified by {@code key}, from the cache or from {@code count}.
+     */
+    public long byFilter(String key, LongSupplier count) {
+        return queryCounts.get("filter:" + key, ignored -> count.getAsLong());
+    }
+
+    @Override
+    public void onLoaded(BookSummary book) {
+        add(book);
+    }
+
+    @Override
+    public void onLoadCompleted() {
+        ready = true;
+    }
+
+    @Override
+    public void onCreated(BookSummary book) {
+        add(book);
+    }
+
+    @Override
+    public void onDeleted(Integer id) {
+        remove(id);
+    }
+
+    private synchronized void add(BookSummary book) {
+        int id = book.id();
+        if (authorOf(id) != 0) {
+            return;
+        }
+        String author = TextFolding.fold(book.author());
+        Integer index = authorIndex.get(author);
+        if (index == null) {
+            index = authors.size();
+            authors.add(author);
+            authorIndex.put(author, index);
+        }
+        setAuthorOf(id, index + 1);
+        total.incrementAndGet();
+        authorCounts.computeIfAbsent(author, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    private synchronized void remove(int id) {
+        int author = authorOf(id);
+        if (author == 0) {
+            return;
+        }
+        setAuthorOf(id, 0);
+        total.decrementAndGet();
+        authorCounts.get(authors.get(author - 1)).decrementAndGet();
+    }
+
+    // Guarded by this.
+    private int authorOf(int id) {
+        if (id < 0) {
+            return 0;
+        }
+        return id < authorOf.length ? authorOf[id] : sparseAuthorOf.getOrDefault(id, 0);
+    }
+
+    // Guarded by this.
+    private void setAuthorOf(int id, int author) {
+        long dense = 2 * total.get() + 1024;
+        if (author != 0 && id >= authorOf.length && id < dense) {
+            authorOf = Arrays.copyOf(authorOf, (int) Math.min(Math.max(id + 1, 2L * authorOf.length), dense));
+            sparseAuthorOf.entrySet().removeIf(entry -> {
+                if (entry.getKey() >= authorOf.length) {
+                    return false;
+                }
+                authorOf[entry.getKey()] = entry.getValue();
+                return true;
+            });
+        }
+        if (id < authorOf.length) {
+            authorOf[id] = author;
+        } else if (author == 0) {
+            sparseAuthorOf.remove(id);
+        } else {
+            sparseAuthorOf.put(id, author);
+        }
+    }
+}
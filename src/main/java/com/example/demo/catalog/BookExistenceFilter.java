@@ -0,0 +1,143 @@
+package com.example.demo.catalog;
+
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.utils.TextFolding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Answers "absent" for book ids and authors without a database round trip.
+ * <p>
+ * Ids go into a bitmap that follows the catalog; an id above the highest one seen is always "maybe". Authors
+ * go into a Bloom filter, which only ever gains entries: once an author's last book is deleted the filter keeps
+ * answering "maybe", which costs a query.
+ * <p>
+ * An "absent" is only as good as the catalog, which learns of a book created elsewhere at its next re-scan at
+ * the earliest. The filter therefore answers "maybe" to everything unless
+ * {@code bookstore.existence-filter.single-writer} declares that every write to the books table goes through
+ * this instance, and, even then, until the initial catalog load completes.
+ */
+@Component
+public class BookExistenceFilter implements BookCatalogListener {
+
+    private final boolean enabled;
+    private final boolean singleWriter;
+
+    private final BitSet ids = new BitSet();
+    private final ReadWriteLock idsLock = new ReentrantReadWriteLock();
+    // Guarded by idsLock.
+    private int maxId;
+
+    private final AtomicLongArray authorBits;
+    private final int authorBitCount;
+    private final int authorHashes;
+
+    private volatile boolean ready;
+
+    public BookExistenceFilter(@Value("${bookstore.existence-filter.enabled:true}") boolean enabled,
+                               @Value("${bookstore.existence-filter.single-writer:false}") boolean singleWriter,
+                               @Value("${bookstore.existence-filter.expected-authors:1000000}") int expectedAuthors,
+                               @Value("${bookstore.existence-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.enabled = enabled;
+        this.singleWriter = singleWriter;
+        long bits = (long) Math.ceil(-expectedAuthors * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.authorBitCount = (int) Math.max(64, Math.min(bits, Integer.MAX_VALUE - 63L));
+        this.authorHashes = Math.max(1, (int) Math.round((double) authorBitCount / expectedAuthors * Math.log(2)));
+        this.authorBits = new AtomicLongArray((authorBitCount + 63) / 64);
+    }
+
+    public boolean mightContainId(long id) {
+        if (id <= 0 || id > Integer.MAX_VALUE) {
+            return false;
+        }
+        if (!ready) {
+            return true;
+        }
+        idsLock.readLock().lock();
+        try {
+            return id > maxId || ids.get((int) id);
+        } finally {
+            idsLock.readLock().unlock();
+        }
+    }
+
+    public boolean mightContainAuthor(String author) {
+        if (!ready) {
+            return true;
+        }
+        long hash = hash(TextFolding.fold(author));
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < authorHashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, authorBitCount);
+            if ((authorBits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void onLoaded(BookSummary book) {
+        add(book);
+    }
+
+    @Override
+    public void onLoadCompleted() {
+        ready = enabled && singleWriter;
+    }
+
+    @Override
+    public void onCreated(BookSummary book) {
+        add(book);
+    }
+
+    @Override
+    public void onDeleted(Integer id) {
+        idsLock.writeLock().lock();
+        try {
+            ids.clear(id);
+        } finally {
+            idsLock.writeLock().unlock();
+        }
+    }
+
+    private void add(BookSummary book) {
+        if (!enabled) {
+            return;
+        }
+        idsLock.writeLock().lock();
+        try {
+            ids.set(book.id());
+            maxId = Math.max(maxId, book.id());
+        } finally {
+            idsLock.writeLock().unlock();
+        }
+
+        long hash = hash(TextFolding.fold(book.author()));
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < authorHashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, authorBitCount);
+            long mask = 1L << bit;
+            authorBits.getAndUpdate(bit >>> 6, word -> word | mask);
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a; the two halves seed the double hashing above.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
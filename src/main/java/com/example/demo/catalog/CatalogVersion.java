@@ -0,0 +1,70 @@
+package com.example.demo.catalog;
+
+import com.example.demo.dtos.BookSummary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cheap change counter for the whole catalog, used to validate listing pages without querying them.
+ * <p>
+ * The generation advances on every create and delete made through this instance. The ETag also carries a
+ * per-process epoch, so a restart never reuses one, and a time bucket of {@code bookstore.catalog.etag-max-age},
+ * which bounds how long a write made through another instance can go unnoticed.
+ * <p>
+ * The modification time only follows writes made through this instance, so it stamps listing bodies but is not
+ * offered as a validator: {@code If-Modified-Since} alone could never see a write made elsewhere.
+ */
+@Component
+public class CatalogVersion implements BookCatalogListener {
+
+    private final long epoch = ThreadLocalRandom.current().nextLong() >>> 1;
+    private final long bucketMillis;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Instant lastModified = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    public CatalogVersion(@Value("${bookstore.catalog.etag-max-age:30s}") Duration etagMaxAge) {
+        this.bucketMillis = Math.max(1, etagMaxAge.toMillis());
+    }
+
+    /**
+     * Strong ETag for listing pages at the current catalog state.
+     */
+    public String eTag() {
+        return "\"c" + Long.toString(epoch, 36) + "-" + generation.get() + "-"
+                + System.currentTimeMillis() / bucketMillis + "\"";
+    }
+
+    public Instant lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public void onLoaded(BookSummary book) {
+    }
+
+    @Override
+    public void onLoadCompleted() {
+    }
+
+    @Override
+    public void onCreated(BookSummary book) {
+        changed();
+    }
+
+    @Override
+    public void onDeleted(Integer id) {
+        changed();
+    }
+
+    private void changed() {
+        generation.incrementAndGet();
+        lastModified = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+}
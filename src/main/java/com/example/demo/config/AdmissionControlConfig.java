@@ -0,0 +1,60 @@
+package com.example.demo.config;
+
+import com.example.demo.admission.AdaptiveConcurrencyLimit;
+import com.example.demo.datasource.ConnectionTimingDataSource;
+import com.example.demo.datasource.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.util.function.SingletonSupplier;
+
+import javax.sql.DataSource;
+import java.util.function.Supplier;
+
+/**
+ * Feeds the connection timings of the DataSource to {@link AdaptiveConcurrencyLimit}, which admission control
+ * sizes its concurrency limit from.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "bookstore.admission.concurrency", name = "enabled", matchIfMissing = true)
+public class AdmissionControlConfig {
+
+    @Bean
+    static BeanPostProcessor connectionTimingPostProcessor(ObjectProvider<AdaptiveConcurrencyLimit> concurrencyLimit) {
+        // Resolved on the first released connection: a post-processor must not create beans on its own.
+        Supplier<AdaptiveConcurrencyLimit> limit = SingletonSupplier.of(concurrencyLimit::getObject);
+        return new ConnectionTimingPostProcessor(
+                (waitNanos, holdNanos) -> limit.get().onConnectionReleased(waitNanos, holdNanos));
+    }
+
+    /**
+     * Wraps outermost, after a bulkhead if there is one. With read replicas the lazy proxy in front of the
+     * routing DataSource is wrapped; it hands out connection handles at once, so only the hold times tell,
+     * and the limit is then bounded by requests that fail with 503.
+     */
+    static class ConnectionTimingPostProcessor implements BeanPostProcessor, Ordered {
+
+        private final ConnectionTimingDataSource.Listener listener;
+
+        ConnectionTimingPostProcessor(ConnectionTimingDataSource.Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof ConnectionTimingDataSource)
+                    && !(bean instanceof ReplicaRoutingDataSource)) {
+                return new ConnectionTimingDataSource(dataSource, listener);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
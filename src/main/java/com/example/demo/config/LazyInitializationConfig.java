@@ -0,0 +1,22 @@
+package com.example.demo.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Beans that stay eager under {@code spring.main.lazy-initialization=true}, which the {@code prod} profile
+ * sets.
+ */
+@Configuration(proxyBeanMethods = false)
+public class LazyInitializationConfig {
+
+    /**
+     * Migrations run at startup, so that a failing one stops the instance before it takes traffic.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerFlywayMigration() {
+        return LazyInitializationExcludeFilter.forBeanTypes(FlywayMigrationInitializer.class);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo.config;
+
+import com.example.demo.datasource.ReplicaRoutingDataSource;
+import com.example.demo.middlewares.ReadYourWritesFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas, enabled by {@code bookstore.datasource.replicas}, a comma-separated list of JDBC URLs.
+ * <p>
+ * Replaces the auto-configured pool with one pool per database, all configured from
+ * {@code spring.datasource.*} and {@code spring.datasource.hikari.*}, behind a {@link ReplicaRoutingDataSource}.
+ * Read-only transactions, which includes the read methods of {@code BookService} and the repository finders,
+ * go to a replica; all other work, including Flyway, goes to the primary. A client's reads stay on the primary
+ * for {@code bookstore.datasource.read-your-writes} after its own writes.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "bookstore.datasource", name = "replicas")
+public class ReadReplicaConfig {
+
+    @Bean
+    ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties, Environment environment,
+                                                      MeterRegistry meterRegistry,
+                                                      @Value("${bookstore.datasource.replicas}") List<String> replicaUrls,
+                                                      @Value("${bookstore.datasource.replica-connection-timeout:2s}") Duration replicaConnectionTimeout,
+                                                      @Value("${bookstore.datasource.replica-health-check-interval:5s}") Duration healthCheckInterval) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = pool(properties, properties.determineUrl(), "primary", binder, meterRegistry);
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = pool(properties, replicaUrls.get(i), "replica-" + i, binder, meterRegistry);
+            replica.setReadOnly(true);
+            replica.setConnectionTimeout(replicaConnectionTimeout.toMillis());
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, healthCheckInterval);
+    }
+
+    @Bean
+    ReadYourWritesFilter readYourWritesFilter(@Value("${bookstore.datasource.read-your-writes:2s}") Duration readYourWrites) {
+        return new ReadYourWritesFilter(readYourWrites);
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    MeterBinder replicaHealthMetrics(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return registry -> Gauge.builder("bookstore.datasource.replicas.healthy", replicaRoutingDataSource,
+                        routing -> routing.healthyReplicas().size())
+                .description("Replicas currently serving read-only transactions")
+                .register(registry);
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String url, String name, Binder binder,
+                                         MeterRegistry meterRegistry) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
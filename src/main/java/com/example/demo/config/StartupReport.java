@@ -0,0 +1,72 @@
+package com.example.demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Logs how long startup took and which bean instantiations were slowest, when the application records its
+ * startup steps in a {@link BufferingApplicationStartup} as {@code BookstoreApplication.main} does. The full
+ * timeline is served by {@code /actuator/startup}.
+ */
+@Component
+public class StartupReport {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupReport.class);
+
+    private static final int SLOWEST_BEANS = 10;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report(ApplicationReadyEvent event) {
+        if (!(event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup startup)) {
+            return;
+        }
+        List<BeanTiming> beans = beansInstantiatedDuringRefresh(startup.getBufferedTimeline());
+        logger.info("Ready in {} ms with {} beans created during refresh. Slowest, including their dependencies: {}",
+                event.getTimeTaken().toMillis(), beans.size(),
+                beans.stream().limit(SLOWEST_BEANS)
+                        .map(bean -> bean.name() + " " + bean.duration().toMillis() + " ms")
+                        .collect(Collectors.joining(", ")));
+    }
+
+    /**
+     * Beans instantiated while the context refreshed, slowest first. Beans created later, lazily or by
+     * background loads, are left out. A bean's time includes the beans it created as dependencies.
+     */
+    public static List<BeanTiming> beansInstantiatedDuringRefresh(StartupTimeline timeline) {
+        Instant refreshEnd = timeline.getEvents().stream()
+                .filter(event -> event.getStartupStep().getName().equals("spring.context.refresh"))
+                .map(StartupTimeline.TimelineEvent::getEndTime)
+                .findFirst()
+                .orElse(Instant.MAX);
+        return timeline.getEvents().stream()
+                .filter(event -> event.getStartupStep().getName().equals("spring.beans.instantiate"))
+                .filter(event -> !event.getStartTime().isAfter(refreshEnd))
+                .map(event -> new BeanTiming(beanName(event.getStartupStep()), event.getDuration()))
+                .sorted(Comparator.comparing(BeanTiming::duration).reversed())
+                .toList();
+    }
+
+    private static String beanName(StartupStep step) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (tag.getKey().equals("beanName")) {
+                return tag.getValue();
+            }
+        }
+        return "?";
+    }
+
+    public record BeanTiming(String name, Duration duration) {
+    }
+}
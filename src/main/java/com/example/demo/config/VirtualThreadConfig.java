@@ -0,0 +1,149 @@
+package com.example.demo.config;
+
+import com.example.demo.datasource.BulkheadDataSource;
+import com.example.demo.datasource.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+/**
+ * Support beans for {@code spring.threads.virtual.enabled=true}. Spring Boot already moves Tomcat request
+ * handling and the application task executor onto virtual threads; this adds a bulkhead in front of the
+ * datasource and logs virtual threads that get pinned to their carrier.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    static BeanPostProcessor dataSourceBulkheadPostProcessor(Environment environment) {
+        return new DataSourceBulkheadPostProcessor(environment);
+    }
+
+    @Bean
+    MeterBinder dataSourceBulkheadMetrics(DataSource dataSource) {
+        return registry -> {
+            BulkheadDataSource bulkhead = bulkhead(dataSource);
+            if (bulkhead != null) {
+                Gauge.builder("bookstore.datasource.bulkhead.available", bulkhead, BulkheadDataSource::getAvailablePermits)
+                        .description("Free connection permits")
+                        .register(registry);
+                Gauge.builder("bookstore.datasource.bulkhead.waiting", bulkhead, BulkheadDataSource::getQueueLength)
+                        .description("Threads queued for a connection permit")
+                        .register(registry);
+            }
+        };
+    }
+
+    /**
+     * The bulkhead around the DataSource, which admission control may have wrapped in turn.
+     */
+    private static BulkheadDataSource bulkhead(DataSource dataSource) {
+        while (dataSource instanceof DelegatingDataSource delegating) {
+            if (delegating instanceof BulkheadDataSource bulkhead) {
+                return bulkhead;
+            }
+            dataSource = delegating.getTargetDataSource();
+        }
+        return null;
+    }
+
+    @Bean
+    PinnedThreadMonitor pinnedThreadMonitor(Environment environment) {
+        return new PinnedThreadMonitor(environment.getProperty("bookstore.virtual-threads.pinned-threshold", Duration.class,
+                Duration.ofMillis(20)));
+    }
+
+    /**
+     * Ordered ahead of the connection timing that admission control wraps around the DataSource, so that the
+     * wait for a permit counts as waiting for the database.
+     */
+    static class DataSourceBulkheadPostProcessor implements BeanPostProcessor, Ordered {
+
+        private final Environment environment;
+
+        DataSourceBulkheadPostProcessor(Environment environment) {
+            this.environment = environment;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            // With read replicas only the proxy in front of the routing DataSource is limited.
+            if (bean instanceof DataSource dataSource && !(bean instanceof BulkheadDataSource)
+                    && !(bean instanceof ReplicaRoutingDataSource)) {
+                int maxConcurrent = environment.getProperty("bookstore.datasource.bulkhead.max-concurrent", Integer.class,
+                        environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+                Duration timeout = environment.getProperty("bookstore.datasource.bulkhead.timeout", Duration.class,
+                        Duration.ofSeconds(5));
+                logger.info("Limiting DataSource '{}' to {} concurrent connections.", beanName, maxConcurrent);
+                return new BulkheadDataSource(dataSource, maxConcurrent, timeout);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE - 1;
+        }
+    }
+
+    /**
+     * Streams {@code jdk.VirtualThreadPinned} JFR events and logs where the pinning happened.
+     */
+    static class PinnedThreadMonitor implements SmartLifecycle {
+
+        private final Duration threshold;
+        private RecordingStream stream;
+
+        PinnedThreadMonitor(Duration threshold) {
+            this.threshold = threshold;
+        }
+
+        @Override
+        public void start() {
+            stream = new RecordingStream();
+            stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+            stream.onEvent("jdk.VirtualThreadPinned", PinnedThreadMonitor::log);
+            stream.startAsync();
+        }
+
+        @Override
+        public void stop() {
+            stream.close();
+            stream = null;
+        }
+
+        @Override
+        public boolean isRunning() {
+            return stream != null;
+        }
+
+        private static void log(RecordedEvent event) {
+            String frames = event.getStackTrace() == null ? "" : event.getStackTrace().getFrames().stream()
+                    .limit(8)
+                    .map(RecordedFrame::getMethod)
+                    .map(method -> method.getType().getName() + "." + method.getName())
+                    .collect(Collectors.joining(" <- "));
+            logger.warn("Virtual thread pinned for {} ms: {}", event.getDuration().toMillis(), frames);
+        }
+    }
+}
@@ -1,10 +1,23 @@
 package com.example.demo.controllers;
 
+import com.example.demo.catalog.CatalogVersion;
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.dtos.BookVersion;
+import com.example.demo.dtos.IngestStatus;
 import com.example.demo.dtos.ResponseBodyDTO;
+import com.example.demo.exceptions.InvalidRequestParameterException;
 import com.example.demo.exceptions.PageNotFoundException;
+import com.example.demo.ingest.BookIngestQueue;
 import com.example.demo.models.Book;
 import com.example.demo.services.BookService;
+import com.example.demo.utils.BookListingQuery;
+import com.example.demo.utils.CountMode;
+import com.example.demo.utils.CursorCodec;
+import com.example.demo.utils.SparseFields;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -12,17 +25,31 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.net.URI;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/books")
@@ -32,41 +59,78 @@ public class BookController {
 
     private static final Logger logger = LoggerFactory.getLogger(BookController.class);
 
+    private static final int MAX_BATCH_SIZE = 100_000;
+
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private BookIngestQueue bookIngestQueue;
+
     @Operation(summary = "Get all books")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Found books",
             content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ResponseBodyDTO.class))}),
     })
+    @Parameter(name = "author", in = ParameterIn.QUERY, description = "Only books by this author; repeat for several authors",
+            array = @ArraySchema(schema = @Schema(type = "string")))
     @GetMapping
     public ResponseEntity<ResponseBodyDTO> getAllBooks(
         @RequestParam(defaultValue = "1") @Min(1) int page,
-        @RequestParam(defaultValue = "10") @Min(5) int size) {
-        Pageable pageable = PageRequest.of(page - 1, size);
-        Page<Book> books = bookService.getAllBooks(pageable);
+        @RequestParam(defaultValue = "10") @Min(5) int size,
+        @Parameter(description = "Keyset cursor from metadata.nextCursor; an empty value starts from the first book")
+        @RequestParam(required = false) String after,
+        @Parameter(description = "Comma-separated subset of id, title, author, year to return; id is always returned")
+        @RequestParam(required = false) String fields,
+        @Parameter(description = "How totals are computed: exact (count query, default), approx (maintained counters) or none")
+        @RequestParam(required = false) String count,
+        @Parameter(description = "Sort field (id, title, author, year), optionally followed by ,asc or ,desc; must match the index the filters use")
+        @RequestParam(required = false) String sort,
+        @Parameter(description = "Only books published in or after this year")
+        @RequestParam(required = false) Integer yearFrom,
+        @Parameter(description = "Only books published in or before this year")
+        @RequestParam(required = false) Integer yearTo,
+        @Parameter(description = "Only books whose title starts with this text")
+        @RequestParam(required = false) String titlePrefix,
+        WebRequest request) {
+        SparseFields sparseFields = SparseFields.parse(fields);
+        CountMode countMode = CountMode.parse(count);
+        // Read the raw values: binding a single value to a List would split author names at commas.
+        String[] authors = request.getParameterValues("author");
+        BookListingQuery query = BookListingQuery.parse(sort, yearFrom, yearTo,
+                authors == null ? null : Arrays.asList(authors), titlePrefix);
+        if (after != null && !query.isDefault()) {
+            throw new InvalidRequestParameterException("after", "A cursor cannot be combined with sort or filters.");
+        }
+        Instant lastModified = catalogVersion.lastModified();
+        // The ETag alone validates listings: the modification time only follows writes made through this instance.
+        if (request.checkNotModified(catalogVersion.eTag())) {
+            return null;
+        }
+        if (after != null) {
+            Slice<BookSummary> books = bookService.getAllBooksAfter(CursorCodec.decode(after), size);
+            if (!books.hasContent()) {
+                throw new PageNotFoundException("Page does not exist.");
+            }
 
-        if (page > books.getTotalPages()) {
-            throw new PageNotFoundException("Page does not exist.");
+            logger.debug("Books retrieved successfully. Total books: {}", books.getContent().size());
+            return ResponseEntity.ok(keysetResponse(books, size, sparseFields, lastModified));
         }
 
-        ResponseBodyDTO.MetadataDTO paginationInfo = ResponseBodyDTO.MetadataDTO.builder()
-                .page(books.getNumber() + 1)
-                .size(size)
-                .totalPages(books.getTotalPages())
-                .totalItems(books.getTotalElements())
-                .build();
+        Slice<BookSummary> books = query.isDefault()
+                ? bookService.getAllBooks(PageRequest.of(page - 1, size), countMode)
+                : bookService.getBooks(query, PageRequest.of(page - 1, size, query.sort()), countMode);
 
-        ResponseBodyDTO response = ResponseBodyDTO.builder()
-                .status(200)
-                .message("Books retrieved successfully.")
-                .data(books.getContent())
-                .metadata(paginationInfo)
-                .build();
+        // An empty page is past the end. This needs no total, so it holds in every count mode.
+        if (!books.hasContent()) {
+            throw new PageNotFoundException("Page does not exist.");
+        }
 
-        logger.info("Books retrieved successfully. Total books: {}", books.getContent().size());
-        return ResponseEntity.ok(response);
+        logger.debug("Books retrieved successfully. Total books: {}", books.getContent().size());
+        return ResponseEntity.ok(pagedResponse(books, countMode, sparseFields, lastModified));
     }
 
     @Operation(summary = "Get a specific book")
@@ -79,17 +143,30 @@ public class BookController {
                 content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ResponseBodyDTO.class))})
     })
     @GetMapping("/{id}")
-    public ResponseEntity<ResponseBodyDTO> getBookById(@PathVariable Long id) {
+    public ResponseEntity<ResponseBodyDTO> getBookById(@PathVariable Integer id, WebRequest request) {
+        // Only a conditional request can be answered without the book, so only then read the version first.
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null) {
+            BookVersion version = bookService.getBookVersion(id);
+            if (request.checkNotModified(bookETag(id, version.version()), version.updatedAt().toEpochMilli())) {
+                return null;
+            }
+        }
+
         Book book = bookService.getBookById(id);
 
         ResponseBodyDTO response = ResponseBodyDTO.builder()
+                .timestamp(asTimestamp(book.getUpdatedAt()))
                 .status(200)
                 .message("Book retrieved successfully.")
                 .data(Collections.singletonList(book))
                 .build();
 
-        logger.info("Book with ID: {} retrieved successfully.", id);
-        return ResponseEntity.ok(response);
+        logger.debug("Book with ID: {} retrieved successfully.", id);
+        return ResponseEntity.ok()
+                .eTag(bookETag(id, book.getVersion()))
+                .lastModified(book.getUpdatedAt())
+                .body(response);
     }
 
     @Operation(summary = "Get books by author")
@@ -102,30 +179,37 @@ public class BookController {
     @GetMapping("/author/{name}")
     public ResponseEntity<ResponseBodyDTO> getBookByAuthor(@PathVariable String name,
        @RequestParam(defaultValue = "1") @Min(1) int page,
-       @RequestParam(defaultValue = "10") @Min(5) int size) {
-        Pageable pageable = PageRequest.of(page - 1, size);
-        Page<Book> books = bookService.getBookByAuthor(name, pageable);
+       @RequestParam(defaultValue = "10") @Min(5) int size,
+       @Parameter(description = "Keyset cursor from metadata.nextCursor; an empty value starts from the first book")
+       @RequestParam(required = false) String after,
+       @Parameter(description = "Comma-separated subset of id, title, author, year to return; id is always returned")
+       @RequestParam(required = false) String fields,
+       @Parameter(description = "How totals are computed: exact (count query, default), approx (maintained counters) or none")
+       @RequestParam(required = false) String count,
+       WebRequest request) {
+        SparseFields sparseFields = SparseFields.parse(fields);
+        CountMode countMode = CountMode.parse(count);
+        Instant lastModified = catalogVersion.lastModified();
+        if (request.checkNotModified(catalogVersion.eTag())) {
+            return null;
+        }
+        if (after != null) {
+            Slice<BookSummary> books = bookService.getBookByAuthorAfter(name, CursorCodec.decode(after), size);
 
-        if (page > books.getTotalPages()) {
-            throw new PageNotFoundException("Page does not exist.");
+            logger.debug("Books for {} retrieved successfully.", name);
+            return ResponseEntity.ok(keysetResponse(books, size, sparseFields, lastModified));
         }
 
-        ResponseBodyDTO.MetadataDTO paginationInfo = ResponseBodyDTO.MetadataDTO.builder()
-                .page(books.getNumber() + 1)
-                .size(size)
-                .totalPages(books.getTotalPages())
-                .totalItems(books.getTotalElements())
-                .build();
+        Pageable pageable = PageRequest.of(page - 1, size);
+        Slice<BookSummary> books = bookService.getBookByAuthor(name, pageable, countMode);
 
-        ResponseBodyDTO response = ResponseBodyDTO.builder()
-                .status(200)
-                .message("Books retrieved successfully.")
-                .data(books.getContent())
-                .metadata(paginationInfo)
-                .build();
+        // An empty page is past the end. This needs no total, so it holds in every count mode.
+        if (!books.hasContent()) {
+            throw new PageNotFoundException("Page does not exist.");
+        }
 
-        logger.info("Books for {} retrieved successfully.", name);
-        return ResponseEntity.ok(response);
+        logger.debug("Books for {} retrieved successfully.", name);
+        return ResponseEntity.ok(pagedResponse(books, countMode, sparseFields, lastModified));
     }
 
     @Operation(summary = "Get books by title")
@@ -141,41 +225,70 @@ public class BookController {
     public ResponseEntity<ResponseBodyDTO> getBookByTitle(
         @PathVariable @Valid @Size(min = 3, message = "Title must be at least 3 characters long.") String name,
         @RequestParam(defaultValue = "1") @Min(1) int page,
-        @RequestParam(defaultValue = "10") @Min(5) int size) {
-        Pageable pageable = PageRequest.of(page - 1, size);
-        Page<Book> books = bookService.getBookByTitle(name, pageable);
+        @RequestParam(defaultValue = "10") @Min(5) int size,
+        @Parameter(description = "Keyset cursor from metadata.nextCursor; an empty value starts from the first book")
+        @RequestParam(required = false) String after,
+        @Parameter(description = "Comma-separated subset of id, title, author, year to return; id is always returned")
+        @RequestParam(required = false) String fields,
+        @Parameter(description = "How totals are computed: exact (count query, default), approx (maintained counters) or none")
+        @RequestParam(required = false) String count,
+        WebRequest request) {
+        SparseFields sparseFields = SparseFields.parse(fields);
+        CountMode countMode = CountMode.parse(count);
+        Instant lastModified = catalogVersion.lastModified();
+        if (request.checkNotModified(catalogVersion.eTag())) {
+            return null;
+        }
+        if (after != null) {
+            Slice<BookSummary> books = bookService.getBookByTitleAfter(name, CursorCodec.decode(after), size);
 
-        if (page > books.getTotalPages()) {
-            throw new PageNotFoundException("Page does not exist.");
+            logger.debug("Books with title {} retrieved successfully.", name);
+            return ResponseEntity.ok(keysetResponse(books, size, sparseFields, lastModified));
         }
 
-        ResponseBodyDTO.MetadataDTO paginationInfo = ResponseBodyDTO.MetadataDTO.builder()
-                .page(books.getNumber() + 1)
-                .size(size)
-                .totalPages(books.getTotalPages())
-                .totalItems(books.getTotalElements())
-                .build();
+        Pageable pageable = PageRequest.of(page - 1, size);
+        Slice<BookSummary> books = bookService.getBookByTitle(name, pageable, countMode);
 
-        ResponseBodyDTO response = ResponseBodyDTO.builder()
-                .status(200)
-                .message("Books retrieved successfully.")
-                .data(books.getContent())
-                .metadata(paginationInfo)
-                .build();
+        // An empty page is past the end. This needs no total, so it holds in every count mode.
+        if (!books.hasContent()) {
+            throw new PageNotFoundException("Page does not exist.");
+        }
 
-        logger.info("Books with title {} retrieved successfully.", name);
-        return ResponseEntity.ok(response);
+        logger.debug("Books with title {} retrieved successfully.", name);
+        return ResponseEntity.ok(pagedResponse(books, countMode, sparseFields, lastModified));
     }
 
     @Operation(summary = "Create a book")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Book was created",
                     content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ResponseBodyDTO.class))}),
+            @ApiResponse(responseCode = "202", description = "Book was queued for creation; poll the Location for its status",
+                    content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ResponseBodyDTO.class))}),
             @ApiResponse(responseCode = "400", description = "Invalid body",
+                    content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ResponseBodyDTO.class))}),
+            @ApiResponse(responseCode = "429", description = "Ingest queue is full, retry after Retry-After seconds",
                     content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ResponseBodyDTO.class))})
     })
     @PostMapping
-    public ResponseEntity<ResponseBodyDTO> createBook(@Valid @RequestBody Book b) {
+    public ResponseEntity<ResponseBodyDTO> createBook(@Valid @RequestBody Book b,
+        @Parameter(description = "respond-async to queue the book and return 202, when async ingestion is enabled")
+        @RequestHeader(name = "Prefer", required = false) String prefer) {
+        if (bookIngestQueue.isEnabled() && prefer != null && prefer.contains("respond-async")) {
+            IngestStatus status = bookIngestQueue.submit(b);
+
+            ResponseBodyDTO response = ResponseBodyDTO.builder()
+                    .status(202)
+                    .message("Book queued for creation.")
+                    .data(Collections.singletonList(status))
+                    .build();
+
+            logger.debug("Book queued for creation with handle: {}", status.handle());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/books/ingest/" + status.handle()))
+                    .header("Preference-Applied", "respond-async")
+                    .body(response);
+        }
+
         Book book = bookService.createBook(b);
 
         ResponseBodyDTO response = ResponseBodyDTO.builder()
@@ -188,6 +301,89 @@ public class BookController {
         return ResponseEntity.status(201).body(response);
     }
 
+    @Operation(summary = "Get the status of a queued book")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Found the status",
+                    content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ResponseBodyDTO.class))}),
+            @ApiResponse(responseCode = "404", description = "Unknown or expired handle",
+                    content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ResponseBodyDTO.class))})
+    })
+    @GetMapping("/ingest/{handle}")
+    public ResponseEntity<ResponseBodyDTO> getIngestStatus(@PathVariable String handle) {
+        IngestStatus status = bookIngestQueue.status(handle);
+
+        ResponseBodyDTO response = ResponseBodyDTO.builder()
+                .status(200)
+                .message("Ingest status retrieved successfully.")
+                .data(Collections.singletonList(status))
+                .build();
+
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "Create books in bulk")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Books were created",
+                    content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ResponseBodyDTO.class))}),
+            @ApiResponse(responseCode = "400", description = "Invalid body, nothing was created",
+                    content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ResponseBodyDTO.class))})
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<ResponseBodyDTO> createBooks(
+        @RequestBody @Size(min = 1, max = MAX_BATCH_SIZE, message = "Batch must contain between 1 and " + MAX_BATCH_SIZE + " books.") List<Book> b) {
+        List<Book> books = bookService.createBooks(b);
+
+        ResponseBodyDTO.MetadataDTO batchInfo = ResponseBodyDTO.MetadataDTO.builder()
+                .totalItems((long) books.size())
+                .build();
+
+        ResponseBodyDTO response = ResponseBodyDTO.builder()
+                .status(201)
+                .message("Books created successfully.")
+                .metadata(batchInfo)
+                .build();
+
+        logger.info("{} books created successfully.", books.size());
+        return ResponseEntity.status(201).body(response);
+    }
+
+    @Operation(summary = "Delete books in bulk")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Existing books were deleted, missing ids are listed in errors",
+                    content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ResponseBodyDTO.class))}),
+            @ApiResponse(responseCode = "400", description = "Invalid body",
+                    content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ResponseBodyDTO.class))})
+    })
+    @DeleteMapping("/batch")
+    public ResponseEntity<ResponseBodyDTO> deleteBooks(
+        @RequestBody @Size(min = 1, max = MAX_BATCH_SIZE, message = "Batch must contain between 1 and " + MAX_BATCH_SIZE + " ids.") List<@NotNull Integer> ids) {
+        Set<Integer> deleted = new HashSet<>(bookService.deleteBooks(ids));
+
+        List<ResponseBodyDTO.FieldErrorDTO> errors = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (!deleted.contains(ids.get(i))) {
+                errors.add(ResponseBodyDTO.FieldErrorDTO.builder()
+                        .field("[" + i + "]")
+                        .message("Book not found.")
+                        .build());
+            }
+        }
+
+        ResponseBodyDTO.MetadataDTO batchInfo = ResponseBodyDTO.MetadataDTO.builder()
+                .totalItems((long) deleted.size())
+                .build();
+
+        ResponseBodyDTO response = ResponseBodyDTO.builder()
+                .status(200)
+                .message("Books deleted successfully.")
+                .errors(errors)
+                .metadata(batchInfo)
+                .build();
+
+        logger.info("{} books deleted successfully.", deleted.size());
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(summary = "Delete a book")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Book was deleted",
@@ -198,7 +394,7 @@ public class BookController {
                     content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ResponseBodyDTO.class))})
     })
     @DeleteMapping("/{id}")
-    public ResponseEntity<ResponseBodyDTO> deleteBook(@PathVariable Long id) {
+    public ResponseEntity<ResponseBodyDTO> deleteBook(@PathVariable Integer id) {
         bookService.deleteBook(id);
 
         ResponseBodyDTO response = ResponseBodyDTO.builder()
@@ -209,4 +405,54 @@ public class BookController {
         logger.info("Book with ID: {} deleted successfully.", id);
         return ResponseEntity.ok(response);
     }
+
+    private ResponseBodyDTO pagedResponse(Slice<BookSummary> books, CountMode countMode, SparseFields sparseFields,
+                                          Instant lastModified) {
+        ResponseBodyDTO.MetadataDTO.MetadataDTOBuilder paginationInfo = ResponseBodyDTO.MetadataDTO.builder()
+                .page(books.getNumber() + 1)
+                .size(books.getSize());
+        if (countMode != CountMode.NONE && books instanceof Page<BookSummary> page) {
+            paginationInfo.totalPages(page.getTotalPages()).totalItems(page.getTotalElements());
+        } else {
+            paginationInfo.hasNext(books.hasNext());
+        }
+
+        return ResponseBodyDTO.builder()
+                .timestamp(asTimestamp(lastModified))
+                .status(200)
+                .message("Books retrieved successfully.")
+                .data(sparseFields.apply(books.getContent()))
+                .metadata(paginationInfo.build())
+                .build();
+    }
+
+    private ResponseBodyDTO keysetResponse(Slice<BookSummary> books, int size, SparseFields sparseFields,
+                                           Instant lastModified) {
+        List<BookSummary> content = books.getContent();
+        ResponseBodyDTO.MetadataDTO paginationInfo = ResponseBodyDTO.MetadataDTO.builder()
+                .size(size)
+                .hasNext(books.hasNext())
+                .nextCursor(books.hasNext() ? CursorCodec.encode(content.get(content.size() - 1).id()) : null)
+                .build();
+
+        return ResponseBodyDTO.builder()
+                .timestamp(asTimestamp(lastModified))
+                .status(200)
+                .message("Books retrieved successfully.")
+                .data(sparseFields.apply(content))
+                .metadata(paginationInfo)
+                .build();
+    }
+
+    private static String bookETag(Integer id, Long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    /**
+     * Conditional reads stamp the body with the representation's modification time instead of the current
+     * time, so that equal ETags always describe identical bytes.
+     */
+    private static LocalDateTime asTimestamp(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault()).truncatedTo(ChronoUnit.MILLIS);
+    }
 }
@@ -0,0 +1,70 @@
+package com.example.demo.controllers;
+
+import com.example.demo.exceptions.InvalidRequestParameterException;
+import com.example.demo.services.BookExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Min;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/books/export")
+@Validated
+@Tag(name = "Book Export Controller", description = "Export the catalog")
+public class BookExportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookExportController.class);
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    @Autowired
+    private BookExportService bookExportService;
+
+    @Operation(summary = "Stream all books as NDJSON or CSV")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Books streamed"),
+            @ApiResponse(responseCode = "400", description = "Invalid parameter")
+    })
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> exportBooks(
+        @RequestParam(defaultValue = "ndjson") String format,
+        @RequestParam(required = false) String author,
+        @RequestParam(required = false) @Min(0) Integer year) {
+        BookExportService.Format exportFormat = parseFormat(format);
+
+        StreamingResponseBody body = out -> {
+            bookExportService.export(exportFormat, author, year, out);
+            logger.info("Books exported successfully as {}.", exportFormat);
+        };
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat == BookExportService.Format.NDJSON ? NDJSON : CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"books." + exportFormat.name().toLowerCase(Locale.ROOT) + "\"")
+                .body(body);
+    }
+
+    private static BookExportService.Format parseFormat(String format) {
+        try {
+            return BookExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidRequestParameterException("format", "Format must be one of: ndjson, csv.");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Reports, for every connection handed out, how long the caller waited for it and how long it was held.
+ * <p>
+ * The wait is the time spent queueing for the database, the hold time the work done with it; their ratio
+ * tells how overloaded the database is, whatever the queries cost.
+ */
+public class ConnectionTimingDataSource extends DelegatingDataSource {
+
+    @FunctionalInterface
+    public interface Listener {
+        void connectionReleased(long waitNanos, long holdNanos);
+    }
+
+    private final Listener listener;
+
+    public ConnectionTimingDataSource(DataSource targetDataSource, Listener listener) {
+        super(targetDataSource);
+        this.listener = listener;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long requested = System.nanoTime();
+        return timed(super.getConnection(), requested);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long requested = System.nanoTime();
+        return timed(super.getConnection(username, password), requested);
+    }
+
+    private Connection timed(Connection connection, long requested) {
+        long acquired = System.nanoTime();
+        return ReleasingConnectionProxy.wrap(connection, "Timing",
+                () -> listener.connectionReleased(acquired - requested, System.nanoTime() - acquired));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.demo.datasource;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.LongConsumer;
+
+/**
+ * Read-your-writes state of the client whose request the current thread serves.
+ * <p>
+ * A client that wrote within the window is pinned: {@link ReplicaRoutingDataSource} sends its reads to the
+ * primary, so replication lag cannot hide its own write, while other clients keep reading from replicas. The
+ * time of the last write travels with the client, in a cookie set by
+ * {@link com.example.demo.middlewares.ReadYourWritesFilter}, so it holds across instances. Work done outside a
+ * request, such as draining the ingest queue, belongs to no client: its writes pin nobody.
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<Client> CURRENT = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    /**
+     * Binds a client to the current thread until {@link #unbind()}.
+     *
+     * @param lastWriteMillis when the client last wrote, in epoch milliseconds, or 0 if it has not
+     * @param onWrite         called with the commit time of every write the client makes while bound
+     */
+    public static void bind(long lastWriteMillis, Duration window, LongConsumer onWrite) {
+        CURRENT.set(new Client(lastWriteMillis, window.toMillis(), onWrite));
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Whether the current client wrote within the window. Times ahead of the clock count as recent, as long as
+     * they are within the window too: clocks of different instances drift.
+     */
+    public static boolean isPinned() {
+        Client client = CURRENT.get();
+        return client != null && Math.abs(System.currentTimeMillis() - client.lastWriteMillis) < client.windowMillis;
+    }
+
+    /**
+     * Records that the current client is writing in the current transaction, as of its commit.
+     */
+    static void writing() {
+        Client client = CURRENT.get();
+        if (client == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            client.wrote(System.currentTimeMillis());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                client.wrote(System.currentTimeMillis());
+            }
+        });
+    }
+
+    private static final class Client {
+        private final long windowMillis;
+        private final LongConsumer onWrite;
+        private long lastWriteMillis;
+
+        Client(long lastWriteMillis, long windowMillis, LongConsumer onWrite) {
+            this.lastWriteMillis = lastWriteMillis;
+            this.windowMillis = windowMillis;
+            this.onWrite = onWrite;
+        }
+
+        void wrote(long millis) {
+            lastWriteMillis = millis;
+            onWrite.accept(millis);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.datasource;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Connection proxy that runs a callback when the connection is first closed, for the wrapping DataSources of
+ * this package. Like Spring's own connection proxies, it has an identity of its own and exposes its target
+ * through {@link ConnectionProxy}.
+ */
+final class ReleasingConnectionProxy implements InvocationHandler {
+
+    private final Connection target;
+    private final String description;
+    private final Runnable onRelease;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private ReleasingConnectionProxy(Connection target, String description, Runnable onRelease) {
+        this.target = target;
+        this.description = description;
+        this.onRelease = onRelease;
+    }
+
+    /**
+     * Wraps {@code target}, calling {@code onRelease} once, after the first {@code close}, whether it succeeds
+     * or not.
+     */
+    static Connection wrap(Connection target, String description, Runnable onRelease) {
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class}, new ReleasingConnectionProxy(target, description, onRelease));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return description + " proxy for target Connection [" + target + "]";
+            case "getTargetConnection":
+                return target;
+            case "close":
+                if (released.compareAndSet(false, true)) {
+                    try {
+                        return invokeTarget(method, args);
+                    } finally {
+                        onRelease.run();
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        return invokeTarget(method, args);
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
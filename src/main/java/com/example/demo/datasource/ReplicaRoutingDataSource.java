@@ -0,0 +1,164 @@
+package com.example.demo.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Sends read-only transactions to a healthy replica, round robin, and everything else to the primary.
+ * <p>
+ * The transaction's read-only flag is only known after the connection is requested, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}. Replicas are probed in the
+ * background and skipped while they fail; a replica that refuses a connection is skipped at once and the
+ * primary serves the read. Reads of a client that has just written go to the primary, see {@link ReadYourWrites}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final int PRIMARY = -1;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+
+    private final AtomicReferenceArray<Boolean> healthy;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration healthCheckInterval) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+
+        // Replicas start out unhealthy; reads go to the primary until the first probe succeeds.
+        this.healthy = new AtomicReferenceArray<>(this.replicas.size());
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < this.replicas.size(); i++) {
+            healthy.set(i, false);
+            targets.put(i, this.replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, 0, healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                ReadYourWrites.writing();
+            }
+            return PRIMARY;
+        }
+        if (ReadYourWrites.isPinned()) {
+            return PRIMARY;
+        }
+        List<Integer> candidates = healthyReplicas();
+        if (candidates.isEmpty()) {
+            return PRIMARY;
+        }
+        return candidates.get(Math.floorMod(nextReplica.getAndIncrement(), candidates.size()));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        int key = (Integer) determineCurrentLookupKey();
+        if (key == PRIMARY) {
+            return primary.getConnection();
+        }
+        try {
+            return replicas.get(key).getConnection();
+        } catch (SQLException ex) {
+            markUnhealthy(key, ex);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        int key = (Integer) determineCurrentLookupKey();
+        if (key == PRIMARY) {
+            return primary.getConnection(username, password);
+        }
+        try {
+            return replicas.get(key).getConnection(username, password);
+        } catch (SQLException ex) {
+            markUnhealthy(key, ex);
+            return primary.getConnection(username, password);
+        }
+    }
+
+    /**
+     * Probes every replica once and updates its health.
+     */
+    void checkReplicas() {
+        for (int i = 0; i < replicas.size(); i++) {
+            try (Connection connection = replicas.get(i).getConnection()) {
+                if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    throw new SQLException("Connection is not valid.");
+                }
+                if (!healthy.getAndSet(i, true)) {
+                    logger.info("Replica {} is healthy, routing read-only transactions to it.", i);
+                }
+            } catch (SQLException ex) {
+                markUnhealthy(i, ex);
+            }
+        }
+    }
+
+    public List<Integer> healthyReplicas() {
+        List<Integer> candidates = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            if (healthy.get(i)) {
+                candidates.add(i);
+            }
+        }
+        return candidates;
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        List<DataSource> targets = new ArrayList<>(replicas);
+        targets.add(primary);
+        for (DataSource dataSource : targets) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception ex) {
+                    logger.warn("Failed to close DataSource.", ex);
+                }
+            }
+        }
+    }
+
+    private void markUnhealthy(int replica, SQLException ex) {
+        if (healthy.getAndSet(replica, false)) {
+            logger.warn("Replica {} is unhealthy, routing its reads to the primary: {}", replica, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.dtos;
+
+import com.example.demo.models.Book;
+
+/**
+ * List view of a book. Selected as a constructor projection, so listing queries skip the description
+ * column and never create managed entities.
+ */
+public record BookSummary(Integer id, String title, String author, Integer year) {
+
+    public static BookSummary of(Book book) {
+        return new BookSummary(book.getId(), book.getTitle(), book.getAuthor(), book.getYear());
+    }
+}
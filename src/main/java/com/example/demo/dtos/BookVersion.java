@@ -0,0 +1,9 @@
+package com.example.demo.dtos;
+
+import java.time.Instant;
+
+/**
+ * Validators of a single book, read without loading the entity.
+ */
+public record BookVersion(Long version, Instant updatedAt) {
+}
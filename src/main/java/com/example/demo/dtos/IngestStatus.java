@@ -0,0 +1,14 @@
+package com.example.demo.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Progress of a book queued for asynchronous creation. {@code bookId} is set once it is created.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record IngestStatus(String handle, State state, Integer bookId) {
+
+    public enum State {
+        QUEUED, CREATED, FAILED
+    }
+}
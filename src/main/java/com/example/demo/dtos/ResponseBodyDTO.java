@@ -3,7 +3,6 @@ package com.example.demo.dtos;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
-import com.example.demo.models.Book;
 import lombok.Builder;
 import lombok.Data;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -17,7 +16,7 @@ public class ResponseBodyDTO {
     private int status;
     private String message;
     private List<FieldErrorDTO> errors;
-    private List<Book> data;
+    private List<?> data;
     private MetadataDTO metadata;
 
     @Data
@@ -36,5 +35,7 @@ public class ResponseBodyDTO {
         private Integer size;
         private Integer totalPages;
         private Long totalItems;
+        private String nextCursor;
+        private Boolean hasNext;
     }
 }
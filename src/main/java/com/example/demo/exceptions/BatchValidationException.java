@@ -0,0 +1,16 @@
+package com.example.demo.exceptions;
+
+import com.example.demo.dtos.ResponseBodyDTO;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class BatchValidationException extends RuntimeException {
+    private final List<ResponseBodyDTO.FieldErrorDTO> errors;
+
+    public BatchValidationException(String message, List<ResponseBodyDTO.FieldErrorDTO> errors) {
+        super(message);
+        this.errors = errors;
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.demo.exceptions;
 
+/**
+ * Thrown on every lookup miss, so it skips stack trace capture: the handler only needs the message.
+ */
 public class BookNotFoundException extends RuntimeException {
     public BookNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
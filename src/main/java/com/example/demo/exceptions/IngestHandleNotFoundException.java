@@ -0,0 +1,10 @@
+package com.example.demo.exceptions;
+
+/**
+ * Thrown for unknown or expired ingest handles, which pollers can hit often, so it skips stack trace capture.
+ */
+public class IngestHandleNotFoundException extends RuntimeException {
+    public IngestHandleNotFoundException(String message) {
+        super(message, null, false, false);
+    }
+}
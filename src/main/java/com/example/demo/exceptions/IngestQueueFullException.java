@@ -0,0 +1,10 @@
+package com.example.demo.exceptions;
+
+/**
+ * Thrown when the ingest queue cannot take another book; the client should retry later.
+ */
+public class IngestQueueFullException extends RuntimeException {
+    public IngestQueueFullException(String message) {
+        super(message, null, false, false);
+    }
+}
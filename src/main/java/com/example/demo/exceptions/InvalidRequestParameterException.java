@@ -0,0 +1,13 @@
+package com.example.demo.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class InvalidRequestParameterException extends RuntimeException {
+    private final String field;
+
+    public InvalidRequestParameterException(String field, String message) {
+        super(message);
+        this.field = field;
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.demo.exceptions;
 
+/**
+ * Thrown for every out-of-range page, so it skips stack trace capture: the handler only needs the message.
+ */
 public class PageNotFoundException extends RuntimeException {
     public PageNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
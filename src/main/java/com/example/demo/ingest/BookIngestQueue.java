@@ -0,0 +1,231 @@
+package com.example.demo.ingest;
+
+import com.example.demo.dtos.IngestStatus;
+import com.example.demo.exceptions.IngestHandleNotFoundException;
+import com.example.demo.exceptions.IngestQueueFullException;
+import com.example.demo.models.Book;
+import com.example.demo.services.BookService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind queue for {@code POST /api/books} requests that ask for {@code Prefer: respond-async}.
+ * <p>
+ * A request enqueues its validated book and returns at once with a handle. A single drainer thread takes
+ * whatever has queued up, at most {@code bookstore.ingest.batch-size} books, and creates it with
+ * {@link BookService#createBooks}, so a burst costs one JDBC batch instead of one round trip per book. If a
+ * batch fails, its books are retried one by one so that a bad book fails alone. A full queue rejects the book
+ * instead of blocking the request thread.
+ * <p>
+ * On shutdown the queue stops after the web server, so no request can enqueue behind the final drain.
+ * Queued books live only in memory: those still queued when {@code bookstore.ingest.drain-timeout} runs out,
+ * or when the process dies, are lost.
+ */
+@Component
+public class BookIngestQueue implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookIngestQueue.class);
+
+    private static final long POLL_MILLIS = 100;
+
+    private final BookService bookService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration drainTimeout;
+    private final BlockingQueue<Pending> queue;
+    private final Cache<String, IngestStatus> statuses;
+
+    private final Counter created;
+    private final Counter failed;
+    private final Counter rejected;
+
+    private volatile boolean running;
+    private Thread drainer;
+
+    // Lazy: lifecycle beans start during refresh, which would otherwise create the JPA stack with them.
+    public BookIngestQueue(@Lazy BookService bookService,
+                           @Value("${bookstore.ingest.enabled:false}") boolean enabled,
+                           @Value("${bookstore.ingest.capacity:10000}") int capacity,
+                           @Value("${bookstore.ingest.batch-size:1000}") int batchSize,
+                           @Value("${bookstore.ingest.drain-timeout:30s}") Duration drainTimeout,
+                           @Value("${bookstore.ingest.status-ttl:10m}") Duration statusTtl,
+                           MeterRegistry meterRegistry) {
+        this.bookService = bookService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.drainTimeout = drainTimeout;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        // Room for every queued book plus the outcomes of several full queues awaiting their pollers.
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(capacity * 10L)
+                .expireAfterWrite(statusTtl)
+                .build();
+
+        Gauge.builder("bookstore.ingest.queue.size", queue, BlockingQueue::size)
+                .description("Books waiting to be created")
+                .register(meterRegistry);
+        this.created = counter(meterRegistry, "created");
+        this.failed = counter(meterRegistry, "failed");
+        this.rejected = counter(meterRegistry, "rejected");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a validated book for creation.
+     *
+     * @throws IngestQueueFullException when the queue is full or not running
+     */
+    public IngestStatus submit(Book book) {
+        // Like batch creates, queued creates always insert.
+        book.setId(null);
+        String handle = UUID.randomUUID().toString();
+        IngestStatus status = new IngestStatus(handle, IngestStatus.State.QUEUED, null);
+        statuses.put(handle, status);
+        if (!running || !queue.offer(new Pending(handle, book))) {
+            statuses.invalidate(handle);
+            rejected.increment();
+            throw new IngestQueueFullException("Ingest queue is full, retry later.");
+        }
+        return status;
+    }
+
+    public IngestStatus status(String handle) {
+        IngestStatus status = statuses.getIfPresent(handle);
+        if (status == null) {
+            throw new IngestHandleNotFoundException("Ingest handle not found.");
+        }
+        return status;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        drainer = new Thread(this::drain, "book-ingest-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (drainer == null) {
+            return;
+        }
+        try {
+            drainer.join(drainTimeout.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (drainer.isAlive()) {
+            drainer.interrupt();
+            logger.warn("Ingest queue did not drain within {}, {} queued books were dropped.", drainTimeout, queue.size());
+        }
+        drainer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Below the web server's phases, so that stopping happens after it stopped taking requests.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                logger.error("Ingest drainer failed on a batch of {} books.", batch.size(), ex);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<Book> books = batch.stream().map(Pending::book).toList();
+        try {
+            bookService.createBooks(books);
+            batch.forEach(this::complete);
+            return;
+        } catch (RuntimeException ex) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), ex);
+                return;
+            }
+            logger.warn("Batch of {} queued books failed, creating them one by one: {}", batch.size(), ex.getMessage());
+        }
+        for (Pending pending : batch) {
+            // The rolled back batch may have set ids on some books; saving those would merge instead of insert.
+            pending.book().setId(null);
+            pending.book().setVersion(null);
+            pending.book().setUpdatedAt(null);
+            try {
+                bookService.createBook(pending.book());
+                complete(pending);
+            } catch (RuntimeException ex) {
+                fail(pending, ex);
+            }
+        }
+    }
+
+    private void complete(Pending pending) {
+        statuses.put(pending.handle(), new IngestStatus(pending.handle(), IngestStatus.State.CREATED, pending.book().getId()));
+        created.increment();
+    }
+
+    private void fail(Pending pending, RuntimeException ex) {
+        logger.warn("Queued book {} could not be created.", pending.handle(), ex);
+        statuses.put(pending.handle(), new IngestStatus(pending.handle(), IngestStatus.State.FAILED, null));
+        failed.increment();
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("bookstore.ingest.books")
+                .description("Books submitted to the ingest queue, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record Pending(String handle, Book book) {
+    }
+}
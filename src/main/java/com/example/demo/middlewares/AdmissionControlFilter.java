@@ -0,0 +1,119 @@
+package com.example.demo.middlewares;
+
+import com.example.demo.admission.AdaptiveConcurrencyLimit;
+import com.example.demo.admission.ClientRateLimiter;
+import com.example.demo.dtos.ResponseBodyDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for the API: turns requests away in microseconds, instead of letting them queue for a
+ * database connection until they time out.
+ * <p>
+ * A client over its {@link ClientRateLimiter rate} gets 429; a request past the {@link AdaptiveConcurrencyLimit
+ * concurrency limit} of its class gets 503. Both carry {@code Retry-After} and a {@link ResponseBodyDTO}. The
+ * filter runs after {@link ResponseCacheFilter}, so listing pages served from the response cache are neither
+ * counted nor shed. Exports stream for minutes and are not admitted here.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String API_PATH = "/api/";
+    private static final String EXPORT_PATH = "/api/books/export";
+    private static final String TITLE_PATH = "/api/books/title/";
+
+    // Roughly the time the limit needs to adapt to, or recover from, a burst.
+    private static final String OVERLOADED_RETRY_AFTER_SECONDS = "1";
+
+    private final ClientRateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public AdmissionControlFilter(ClientRateLimiter rateLimiter, AdaptiveConcurrencyLimit concurrencyLimit,
+                                  ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimit = concurrencyLimit;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!rateLimiter.isEnabled() && !concurrencyLimit.isEnabled()) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith(API_PATH) || path.startsWith(EXPORT_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AdaptiveConcurrencyLimit.Priority priority = priority(request);
+
+        long waitNanos = rateLimiter.tryAcquire(request.getRemoteAddr());
+        if (waitNanos > 0) {
+            String retryAfter = String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)));
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, "Too many requests, retry later.", retryAfter,
+                    "rate_limit", priority);
+            return;
+        }
+        if (!concurrencyLimit.tryAcquire(priority)) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, "The service is overloaded, retry later.",
+                    OVERLOADED_RETRY_AFTER_SECONDS, "concurrency_limit", priority);
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            concurrencyLimit.release(response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+    }
+
+    private static AdaptiveConcurrencyLimit.Priority priority(HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            return AdaptiveConcurrencyLimit.Priority.WRITE;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.startsWith(TITLE_PATH) ? AdaptiveConcurrencyLimit.Priority.SEARCH
+                : AdaptiveConcurrencyLimit.Priority.READ;
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message, String retryAfter,
+                        String reason, AdaptiveConcurrencyLimit.Priority priority) throws IOException {
+        Counter.builder("bookstore.admission.rejected")
+                .description("Requests turned away by admission control")
+                .tag("reason", reason)
+                .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry)
+                .increment();
+        ResponseBodyDTO body = ResponseBodyDTO.builder()
+                .status(status.value())
+                .message(message)
+                .build();
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
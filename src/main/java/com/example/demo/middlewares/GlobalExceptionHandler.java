@@ -1,11 +1,21 @@
 package com.example.demo.middlewares;
 
 import com.example.demo.dtos.ResponseBodyDTO;
+import com.example.demo.exceptions.BatchValidationException;
 import com.example.demo.exceptions.BookNotFoundException;
+import com.example.demo.exceptions.IngestHandleNotFoundException;
+import com.example.demo.exceptions.IngestQueueFullException;
+import com.example.demo.exceptions.InvalidRequestParameterException;
 import com.example.demo.exceptions.PageNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -14,6 +24,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
+import java.sql.SQLTransientConnectionException;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -21,10 +32,22 @@ import java.util.stream.Collectors;
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    // The drainer empties a full queue in about a second at the default batch size.
+    private static final String INGEST_RETRY_AFTER_SECONDS = "1";
 
-    @ExceptionHandler({BookNotFoundException.class, PageNotFoundException.class})
+    // Connection waits time out after seconds; by then the admission limit has shrunk to what the pool sustains.
+    private static final String DATABASE_RETRY_AFTER_SECONDS = "1";
+
+    private final MeterRegistry meterRegistry;
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @ExceptionHandler({BookNotFoundException.class, PageNotFoundException.class, IngestHandleNotFoundException.class})
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ResponseEntity<ResponseBodyDTO> handleBookNotFoundException(Exception ex) {
+        count("not_found", HttpStatus.NOT_FOUND);
         ResponseBodyDTO response = ResponseBodyDTO.builder()
                 .status(HttpStatus.NOT_FOUND.value())
                 .message(ex.getMessage())
@@ -36,6 +59,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler({MethodArgumentNotValidException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<ResponseBodyDTO> handleValidationExceptions(MethodArgumentNotValidException ex) {
+        count("validation", HttpStatus.BAD_REQUEST);
         List<ResponseBodyDTO.FieldErrorDTO> errors = ex.getBindingResult().getAllErrors().stream()
                 .map(error -> {
                     String fieldName = ((FieldError) error).getField();
@@ -58,6 +82,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler({ConstraintViolationException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<ResponseBodyDTO> handleConstraintViolationException(ConstraintViolationException ex) {
+        count("constraint_violation", HttpStatus.BAD_REQUEST);
         List<ResponseBodyDTO.FieldErrorDTO> errors = ex.getConstraintViolations().stream()
                 .map(violation -> {
                     String field = violation.getPropertyPath().toString();
@@ -77,9 +102,23 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
+    @ExceptionHandler({BatchValidationException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ResponseEntity<ResponseBodyDTO> handleBatchValidationException(BatchValidationException ex) {
+        count("batch_validation", HttpStatus.BAD_REQUEST);
+        ResponseBodyDTO response = ResponseBodyDTO.builder()
+                .status(HttpStatus.BAD_REQUEST.value())
+                .message(ex.getMessage())
+                .errors(ex.getErrors())
+                .build();
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
     @ExceptionHandler({MethodArgumentTypeMismatchException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<ResponseBodyDTO> handleTypeMismatchException(MethodArgumentTypeMismatchException ex) {
+        count("type_mismatch", HttpStatus.BAD_REQUEST);
         String fieldName = ex.getName();
         ResponseBodyDTO.FieldErrorDTO fieldError = ResponseBodyDTO.FieldErrorDTO.builder()
                 .field(fieldName)
@@ -93,9 +132,60 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
+    @ExceptionHandler({InvalidRequestParameterException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ResponseEntity<ResponseBodyDTO> handleInvalidRequestParameterException(InvalidRequestParameterException ex) {
+        count("invalid_parameter", HttpStatus.BAD_REQUEST);
+        ResponseBodyDTO.FieldErrorDTO fieldError = ResponseBodyDTO.FieldErrorDTO.builder()
+                .field(ex.getField())
+                .message(ex.getMessage())
+                .build();
+        ResponseBodyDTO response = ResponseBodyDTO.builder()
+                .status(HttpStatus.BAD_REQUEST.value())
+                .message("Invalid parameter value")
+                .errors(Collections.singletonList(fieldError))
+                .build();
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    @ExceptionHandler({IngestQueueFullException.class})
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ResponseEntity<ResponseBodyDTO> handleIngestQueueFullException(IngestQueueFullException ex) {
+        count("ingest_queue_full", HttpStatus.TOO_MANY_REQUESTS);
+        ResponseBodyDTO response = ResponseBodyDTO.builder()
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .message(ex.getMessage())
+                .build();
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, INGEST_RETRY_AFTER_SECONDS)
+                .body(response);
+    }
+
+    /**
+     * Timeouts waiting for a connection or a query, and a database that cannot be reached, mean the service is
+     * overloaded or degraded rather than broken, and are worth retrying.
+     */
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class,
+            QueryTimeoutException.class, SQLTransientConnectionException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<ResponseBodyDTO> handleDatabaseUnavailableException(Exception ex) {
+        count("database_unavailable", HttpStatus.SERVICE_UNAVAILABLE);
+        ResponseBodyDTO response = ResponseBodyDTO.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .message("The database is busy, retry later.")
+                .build();
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, DATABASE_RETRY_AFTER_SECONDS)
+                .body(response);
+    }
+
     @ExceptionHandler({HttpRequestMethodNotSupportedException.class})
     @ResponseStatus(HttpStatus.METHOD_NOT_ALLOWED)
     public ResponseEntity<ResponseBodyDTO> handleHttpRequestMethodNotSupportedException(HttpRequestMethodNotSupportedException ex) {
+        count("method_not_allowed", HttpStatus.METHOD_NOT_ALLOWED);
         ResponseBodyDTO response = ResponseBodyDTO.builder()
                 .status(HttpStatus.METHOD_NOT_ALLOWED.value())
                 .message(ex.getMessage())
@@ -107,6 +197,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler({Exception.class})
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ResponseEntity<ResponseBodyDTO> handleGenericException() {
+        count("unexpected", HttpStatus.INTERNAL_SERVER_ERROR);
         ResponseBodyDTO response = ResponseBodyDTO.builder()
                 .status(HttpStatus.INTERNAL_SERVER_ERROR.value())
                 .message("An unexpected error occurred.")
@@ -114,4 +205,13 @@ public class GlobalExceptionHandler {
 
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
     }
+
+    private void count(String handler, HttpStatus status) {
+        Counter.builder("bookstore.errors")
+                .description("Error responses by exception handler branch")
+                .tag("handler", handler)
+                .tag("status", String.valueOf(status.value()))
+                .register(meterRegistry)
+                .increment();
+    }
 }
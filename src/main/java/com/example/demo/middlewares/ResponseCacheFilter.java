@@ -0,0 +1,144 @@
+package com.example.demo.middlewares;
+
+import com.example.demo.cache.ResponseCache;
+import com.example.demo.datasource.ReadYourWrites;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UriUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Serves the hot listing pages, {@code GET /api/books} and {@code GET /api/books/author/{name}}, from
+ * {@link ResponseCache} as stored bytes, skipping the page query, the count and Jackson.
+ * <p>
+ * A miss runs the controller as usual and keeps a copy of a 200 response. Conditional requests are answered
+ * from the stored validators.
+ */
+@Component
+// Ahead of AdmissionControlFilter: a cached page costs nothing to serve, so it is not subject to admission.
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final String BOOKS_PATH = "/api/books";
+    private static final String AUTHOR_PATH = "/api/books/author/";
+
+    private final ResponseCache responseCache;
+
+    public ResponseCacheFilter(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // A client that has just written reads from the primary; a page cached from a lagging replica could hide
+        // its write.
+        if (!responseCache.isEnabled() || !HttpMethod.GET.matches(request.getMethod()) || ReadYourWrites.isPinned()) {
+            return true;
+        }
+        String path = path(request);
+        return !path.equals(BOOKS_PATH) && author(path) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = path(request);
+        String key = responseCache.generation(author(path)) + " " + path + "?" + canonicalQuery(request);
+
+        ResponseCache.Entry cached = responseCache.get(key);
+        if (cached != null) {
+            write(cached, request, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+        if (wrapper.getStatus() == HttpStatus.OK.value()) {
+            responseCache.put(key, wrapper.getContentAsByteArray(), wrapper.getContentType(),
+                    wrapper.getHeader(HttpHeaders.ETAG), wrapper.getHeader(HttpHeaders.LAST_MODIFIED));
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private void write(ResponseCache.Entry entry, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (new ServletWebRequest(request, response).checkNotModified(entry.eTag(), epochMillis(entry.lastModified()))) {
+            return;
+        }
+        response.setContentType(entry.contentType());
+        if (!entry.gzipped()) {
+            response.setContentLength(entry.body().length);
+            response.getOutputStream().write(entry.body());
+            return;
+        }
+
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(request)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.setContentLength(entry.body().length);
+            response.getOutputStream().write(entry.body());
+        } else {
+            try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(entry.body()))) {
+                body.transferTo(response.getOutputStream());
+            }
+        }
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    /**
+     * The author of an author listing path, or null for any other path.
+     */
+    private static String author(String path) {
+        if (!path.startsWith(AUTHOR_PATH) || path.length() == AUTHOR_PATH.length()
+                || path.indexOf('/', AUTHOR_PATH.length()) >= 0) {
+            return null;
+        }
+        return UriUtils.decode(path.substring(AUTHOR_PATH.length()), StandardCharsets.UTF_8);
+    }
+
+    private static String canonicalQuery(HttpServletRequest request) {
+        StringBuilder query = new StringBuilder();
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            for (String value : parameter.getValue()) {
+                query.append(UriUtils.encode(parameter.getKey(), StandardCharsets.UTF_8)).append('=')
+                        .append(UriUtils.encode(value, StandardCharsets.UTF_8)).append('&');
+            }
+        }
+        return query.toString();
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private static long epochMillis(String httpDate) {
+        if (httpDate == null) {
+            return -1;
+        }
+        return ZonedDateTime.parse(httpDate, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+    }
+}
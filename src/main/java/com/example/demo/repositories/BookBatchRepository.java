@@ -0,0 +1,129 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk writes issued through JDBC batches. {@code Book.id} uses IDENTITY generation, which stops Hibernate
+ * from batching inserts, so these go around the persistence context.
+ */
+@Repository
+public class BookBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO books (title, author, description, year, version, updated_at) VALUES (?, ?, ?, ?, 0, ?)";
+    private static final String SELECT_IDS_SQL = "SELECT id FROM books WHERE id IN (:ids) FOR UPDATE";
+    private static final String DELETE_SQL = "DELETE FROM books WHERE id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final int chunkSize;
+    private final Timer insertTimer;
+    private final Timer deleteTimer;
+
+    public BookBatchRepository(JdbcTemplate jdbcTemplate,
+                               NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${bookstore.batch.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.chunkSize = chunkSize;
+        this.insertTimer = timer(meterRegistry, "insertAll");
+        this.deleteTimer = timer(meterRegistry, "deleteAllById");
+    }
+
+    /**
+     * Inserts all books in one transaction, one JDBC batch per chunk, and sets the generated ids on them.
+     */
+    @Transactional
+    public List<Book> insertAll(List<Book> books) {
+        Timer.Sample sample = Timer.start();
+        Instant now = Instant.now();
+        for (List<Book> chunk : chunks(books)) {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Book book = chunk.get(i);
+                            ps.setString(1, book.getTitle());
+                            ps.setString(2, book.getAuthor());
+                            if (book.getDescription() != null) {
+                                ps.setString(3, book.getDescription());
+                            } else {
+                                ps.setNull(3, Types.VARCHAR);
+                            }
+                            ps.setInt(4, book.getYear());
+                            ps.setTimestamp(5, Timestamp.from(now));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    }, keyHolder);
+
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < chunk.size(); i++) {
+                Book book = chunk.get(i);
+                book.setId(((Number) keys.get(i).values().iterator().next()).intValue());
+                book.setVersion(0L);
+                book.setUpdatedAt(now);
+            }
+        }
+        sample.stop(insertTimer);
+        return books;
+    }
+
+    /**
+     * Deletes the given ids in one transaction and returns the ones that existed.
+     */
+    @Transactional
+    public List<Integer> deleteAllById(Collection<Integer> ids) {
+        Timer.Sample sample = Timer.start();
+        List<Integer> deleted = new ArrayList<>();
+        for (List<Integer> chunk : chunks(new ArrayList<>(ids))) {
+            Map<String, Object> params = Map.of("ids", chunk);
+            List<Integer> existing = namedParameterJdbcTemplate.queryForList(SELECT_IDS_SQL, params, Integer.class);
+            if (!existing.isEmpty()) {
+                namedParameterJdbcTemplate.update(DELETE_SQL, Map.of("ids", existing));
+                deleted.addAll(existing);
+            }
+        }
+        sample.stop(deleteTimer);
+        return deleted;
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String method) {
+        return Timer.builder("bookstore.jdbc.invocations")
+                .tag("repository", BookBatchRepository.class.getSimpleName())
+                .tag("method", method)
+                .register(meterRegistry);
+    }
+
+    private <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            chunks.add(items.subList(from, Math.min(from + chunkSize, items.size())));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Forward-only scan over the books table for exports. Rows are handed to the consumer one at a time
+ * and never collected, so memory use does not depend on the size of the catalog.
+ * <p>
+ * Only this statement streams. Connector/J buffers whole result sets unless a statement asks for rows one at a
+ * time with a fetch size of {@link Integer#MIN_VALUE}; other drivers honour {@code bookstore.export.fetch-size}.
+ */
+@Repository
+public class BookExportRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+    private final Timer scanTimer;
+
+    public BookExportRepository(DataSource dataSource,
+                                MeterRegistry meterRegistry,
+                                @Value("${bookstore.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.fetchSize = fetchSize;
+        this.scanTimer = Timer.builder("bookstore.jdbc.invocations")
+                .tag("repository", BookExportRepository.class.getSimpleName())
+                .tag("method", "forEach")
+                .register(meterRegistry);
+    }
+
+    @Transactional(readOnly = true)
+    public void forEach(String author, Integer year, Consumer<Book> consumer) {
+        StringBuilder sql = new StringBuilder("SELECT id, title, author, description, year, version, updated_at FROM books WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (author != null) {
+            sql.append(" AND author = ?");
+            args.add(author);
+        }
+        if (year != null) {
+            sql.append(" AND year = ?");
+            args.add(year);
+        }
+        sql.append(" ORDER BY id");
+
+        PreparedStatementCreator statement = connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(isMySql(connection) ? Integer.MIN_VALUE : fetchSize);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        };
+        scanTimer.record(() -> jdbcTemplate.query(statement, (RowCallbackHandler) rs -> {
+            Book book = new Book();
+            book.setId(rs.getInt("id"));
+            book.setTitle(rs.getString("title"));
+            book.setAuthor(rs.getString("author"));
+            book.setDescription(rs.getString("description"));
+            book.setYear(rs.getInt("year"));
+            // Exported lines carry the same validators as GET /api/books/{id}.
+            book.setVersion(rs.getLong("version"));
+            book.setUpdatedAt(rs.getTimestamp("updated_at").toInstant());
+            consumer.accept(book);
+        }));
+    }
+
+    private static boolean isMySql(Connection connection) throws SQLException {
+        return "MySQL".equals(connection.getMetaData().getDatabaseProductName());
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.repositories;
+
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.models.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Filtered and sorted listings, projected to {@link BookSummary}. Part of {@link BookRepository}.
+ */
+public interface BookListingRepository {
+
+    /**
+     * Reads one row past the page to tell whether another follows; totals are left to the caller.
+     */
+    Slice<BookSummary> findSummaries(Specification<Book> specification, Pageable pageable);
+}
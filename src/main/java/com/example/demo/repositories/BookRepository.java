@@ -1,13 +1,55 @@
 package com.example.demo.repositories;
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.dtos.BookVersion;
 import com.example.demo.models.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
-    Page<Book> findByAuthor(String author, Pageable pageable);
+public interface BookRepository extends JpaRepository<Book, Integer>, JpaSpecificationExecutor<Book>, BookListingRepository {
+    // List queries project to BookSummary; full entities are only loaded by findById.
+    Page<BookSummary> findAllBy(Pageable pageable);
+
+    Page<BookSummary> findByAuthor(String author, Pageable pageable);
+
+    Page<BookSummary> findByTitleContainingIgnoreCase(String title, Pageable pageable);
+
+    // Slice variants read one row past the page instead of running a count query.
+    Slice<BookSummary> findSliceBy(Pageable pageable);
+
+    Slice<BookSummary> findSliceByAuthor(String author, Pageable pageable);
+
+    Slice<BookSummary> findSliceByTitleContainingIgnoreCase(String title, Pageable pageable);
+
+    long countByTitleContainingIgnoreCase(String title);
+
+    List<BookSummary> findByIdIn(Collection<Integer> ids);
+
+    @Query("select new com.example.demo.dtos.BookVersion(b.version, b.updatedAt) from Book b where b.id = :id")
+    Optional<BookVersion> findVersionById(@Param("id") Integer id);
+
+    // Single DELETE statement; the affected row count tells whether the book existed.
+    @Transactional
+    @Modifying
+    @Query("delete from Book b where b.id = :id")
+    int deleteByIdReturningCount(@Param("id") Integer id);
+
+    // Keyset (seek) variants: WHERE id > ? ORDER BY id LIMIT ?, no count query.
+    Slice<BookSummary> findByIdGreaterThanOrderByIdAsc(Integer id, Pageable pageable);
+
+    Slice<BookSummary> findByAuthorAndIdGreaterThanOrderByIdAsc(String author, Integer id, Pageable pageable);
 
-    Page<Book> findByTitleContainingIgnoreCase(String title, Pageable pageable);
-}
\ No newline at end of file
+    Slice<BookSummary> findByTitleContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc(String title, Integer id, Pageable pageable);
+}
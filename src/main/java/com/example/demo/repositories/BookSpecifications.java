@@ -0,0 +1,34 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.Book;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+
+/**
+ * Filters for {@link BookRepository} listings. Each compares the bare column, so the matching index can be
+ * used; {@link #titleStartsWith} relies on the column collation for case-insensitivity instead of wrapping
+ * the column in a function.
+ */
+public final class BookSpecifications {
+
+    private BookSpecifications() {
+    }
+
+    public static Specification<Book> yearAtLeast(int year) {
+        return (book, query, cb) -> cb.greaterThanOrEqualTo(book.get("year"), year);
+    }
+
+    public static Specification<Book> yearAtMost(int year) {
+        return (book, query, cb) -> cb.lessThanOrEqualTo(book.get("year"), year);
+    }
+
+    public static Specification<Book> authorIn(Collection<String> authors) {
+        return (book, query, cb) -> book.get("author").in(authors);
+    }
+
+    public static Specification<Book> titleStartsWith(String prefix) {
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (book, query, cb) -> cb.like(book.get("title"), pattern, '\\');
+    }
+}
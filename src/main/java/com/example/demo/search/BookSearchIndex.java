@@ -0,0 +1,207 @@
+package com.example.demo.search;
+
+import com.example.demo.catalog.BookCatalogListener;
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.utils.TextFolding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * In-process inverted index over book titles, fed by {@link com.example.demo.catalog.BookCatalog}.
+ * <p>
+ * Text is case- and accent-folded (matching the MySQL {@code _ai_ci} collation the LIKE query relies on)
+ * and split into trigrams. A query looks up the rarest of its trigrams and verifies each candidate with a
+ * substring check, so results are exact. Adding a book that is already indexed does nothing, so a book
+ * created while the catalog loads is not indexed twice. Deleted books are dropped from the title table and
+ * filtered out of the posting lists lazily; a posting list is compacted once deleted books make up half of it.
+ */
+@Component
+public class BookSearchIndex implements BookCatalogListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final int GRAM = 3;
+
+    // Deleted entries a posting list tolerates before it is compacted, however short it is.
+    private static final int MIN_DEAD_TO_COMPACT = 16;
+
+    private final boolean enabled;
+
+    private final Map<Integer, String> titles = new ConcurrentHashMap<>();
+    private final Map<String, Postings> postings = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    public BookSearchIndex(@Value("${bookstore.search.index.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * The index is usable once the initial catalog load has finished. Until then callers fall back to the
+     * database.
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @Override
+    public void onLoaded(BookSummary book) {
+        add(book);
+    }
+
+    @Override
+    public void onLoadCompleted() {
+        ready = enabled;
+        logger.info("Search index holds {} books.", titles.size());
+    }
+
+    @Override
+    public void onCreated(BookSummary book) {
+        add(book);
+    }
+
+    @Override
+    public void onDeleted(Integer id) {
+        String title = titles.remove(id);
+        if (title == null) {
+            return;
+        }
+        for (String gram : grams(title)) {
+            Postings list = postings.get(gram);
+            if (list != null) {
+                list.removed(titles::containsKey);
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of all books whose title contains the query, best match first, or empty when the
+     * query is too short to be answered from trigrams.
+     */
+    public Optional<List<Integer>> search(String query) {
+        String needle = TextFolding.fold(query);
+        if (needle.length() < GRAM) {
+            return Optional.empty();
+        }
+
+        Postings rarest = null;
+        for (String gram : grams(needle)) {
+            Postings candidate = postings.get(gram);
+            if (candidate == null) {
+                return Optional.of(List.of());
+            }
+            if (rarest == null || candidate.size() < rarest.size()) {
+                rarest = candidate;
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (int id : rarest.snapshot()) {
+            String text = titles.get(id);
+            if (text == null) {
+                continue;
+            }
+            int position = text.indexOf(needle);
+            if (position >= 0) {
+                matches.add(new Match(id, rank(text, needle, position), text.length()));
+            }
+        }
+        matches.sort(Comparator.comparingInt(Match::rank)
+                .thenComparingInt(Match::length)
+                .thenComparingInt(Match::id));
+        return Optional.of(matches.stream().map(Match::id).toList());
+    }
+
+    private void add(BookSummary book) {
+        if (!enabled) {
+            return;
+        }
+        String title = TextFolding.fold(book.title());
+        if (titles.putIfAbsent(book.id(), title) != null) {
+            return;
+        }
+        for (String gram : grams(title)) {
+            postings.computeIfAbsent(gram, key -> new Postings()).add(book.id());
+        }
+    }
+
+    /**
+     * Exact match first, then prefix, then a match at a word boundary, then any other substring.
+     */
+    private static int rank(String text, String needle, int position) {
+        if (position == 0) {
+            return text.length() == needle.length() ? 0 : 1;
+        }
+        return Character.isLetterOrDigit(text.charAt(position - 1)) ? 3 : 2;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private record Match(int id, int rank, int length) {
+    }
+
+    /**
+     * List of book ids for one trigram. Ids of deleted books stay in it until it is compacted.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+        private int dead;
+
+        synchronized void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized int[] snapshot() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        /**
+         * Counts one of the ids as deleted, and keeps only the ids that are still {@code live} once deleted
+         * ones make up half of the list.
+         */
+        synchronized void removed(IntPredicate live) {
+            dead++;
+            if (dead < MIN_DEAD_TO_COMPACT || dead * 2 < size) {
+                return;
+            }
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (live.test(ids[i])) {
+                    ids[kept++] = ids[i];
+                }
+            }
+            size = kept;
+            dead = 0;
+            if (ids.length > 4 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+            }
+        }
+    }
+}
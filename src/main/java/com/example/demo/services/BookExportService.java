@@ -0,0 +1,101 @@
+package com.example.demo.services;
+
+import com.example.demo.models.Book;
+import com.example.demo.repositories.BookExportRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+@Service
+public class BookExportService {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    private final BookExportRepository bookExportRepository;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public BookExportService(BookExportRepository bookExportRepository, ObjectMapper objectMapper) {
+        this.bookExportRepository = bookExportRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public void export(Format format, String author, Integer year, OutputStream out) throws IOException {
+        try {
+            if (format == Format.NDJSON) {
+                writeNdjson(author, year, out);
+            } else {
+                writeCsv(author, year, out);
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private void writeNdjson(String author, Integer year, OutputStream out) throws IOException {
+        // Each record ends its own line; the default root separator would start every later line with a space.
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out).setRootValueSeparator(null)) {
+            bookExportRepository.forEach(author, year, book -> {
+                try {
+                    generator.writeObject(book);
+                    generator.writeRaw('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+    }
+
+    private void writeCsv(String author, Integer year, OutputStream out) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            // The same fields as the NDJSON records.
+            writer.write("id,title,author,description,year,version,updatedAt\r\n");
+            bookExportRepository.forEach(author, year, book -> {
+                try {
+                    writer.write(String.valueOf(book.getId()));
+                    writer.write(',');
+                    writer.write(csv(book.getTitle()));
+                    writer.write(',');
+                    writer.write(csv(book.getAuthor()));
+                    writer.write(',');
+                    writer.write(csv(book.getDescription()));
+                    writer.write(',');
+                    writer.write(String.valueOf(book.getYear()));
+                    writer.write(',');
+                    writer.write(String.valueOf(book.getVersion()));
+                    writer.write(',');
+                    writer.write(String.valueOf(book.getUpdatedAt()));
+                    writer.write("\r\n");
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+    }
+
+    /**
+     * Quotes a field per RFC 4180 when it contains a separator, quote or line break.
+     */
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,15 +1,60 @@
 package com.example.demo.services;
 
+import com.example.demo.cache.ResponseCache;
+import com.example.demo.catalog.BookCatalog;
+import com.example.demo.catalog.BookCounts;
+import com.example.demo.catalog.BookExistenceFilter;
+import com.example.demo.datasource.ReadYourWrites;
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.dtos.BookVersion;
+import com.example.demo.dtos.ResponseBodyDTO;
+import com.example.demo.exceptions.BatchValidationException;
 import com.example.demo.exceptions.BookNotFoundException;
 import com.example.demo.models.Book;
+import com.example.demo.repositories.BookBatchRepository;
 import com.example.demo.repositories.BookRepository;
+import com.example.demo.search.BookSearchIndex;
+import com.example.demo.utils.BookListingQuery;
+import com.example.demo.utils.CountMode;
+import jakarta.validation.ConstraintViolation;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Reads are coalesced: concurrent callers asking for the same book, author, title or page share one query
+ * through a {@link SingleFlight} per kind of read. The shared query runs in its own read-only transaction, so
+ * callers waiting on it hold no connection.
+ */
 @Service
 public class BookService {
 
@@ -17,51 +62,326 @@ public class BookService {
 
     private final BookRepository bookRepository;
 
+    private final BookBatchRepository bookBatchRepository;
+
+    private final BookCatalog bookCatalog;
+
+    private final BookSearchIndex bookSearchIndex;
+
+    private final BookExistenceFilter bookExistenceFilter;
+
+    private final BookCounts bookCounts;
+
+    private final Validator validator;
+
+    private final Cache bookCache;
+
+    private final ResponseCache responseCache;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final SingleFlight bookFlight;
+
+    private final SingleFlight versionFlight;
+
+    private final SingleFlight authorFlight;
+
+    private final SingleFlight titleFlight;
+
+    private final SingleFlight listingFlight;
 
     @Autowired
-    public BookService(BookRepository bookRepository) {
+    public BookService(BookRepository bookRepository, BookBatchRepository bookBatchRepository, BookCatalog bookCatalog,
+                       BookSearchIndex bookSearchIndex, BookExistenceFilter bookExistenceFilter, BookCounts bookCounts,
+                       Validator validator, CacheManager cacheManager, ResponseCache responseCache,
+                       PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                       @Value("${bookstore.single-flight.enabled:true}") boolean singleFlightEnabled,
+                       @Value("${bookstore.single-flight.timeout:10s}") Duration singleFlightTimeout) {
         this.bookRepository = bookRepository;
+        this.bookBatchRepository = bookBatchRepository;
+        this.bookCatalog = bookCatalog;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookExistenceFilter = bookExistenceFilter;
+        this.bookCounts = bookCounts;
+        this.validator = validator;
+        this.bookCache = cacheManager.getCache("books");
+        this.responseCache = responseCache;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.bookFlight = new SingleFlight("book", singleFlightEnabled, singleFlightTimeout, meterRegistry);
+        this.versionFlight = new SingleFlight("version", singleFlightEnabled, singleFlightTimeout, meterRegistry);
+        this.authorFlight = new SingleFlight("author", singleFlightEnabled, singleFlightTimeout, meterRegistry);
+        this.titleFlight = new SingleFlight("title", singleFlightEnabled, singleFlightTimeout, meterRegistry);
+        this.listingFlight = new SingleFlight("listing", singleFlightEnabled, singleFlightTimeout, meterRegistry);
     }
 
-    public Page<Book> getAllBooks(Pageable pageable) {
-        return bookRepository.findAll(pageable);
+    /**
+     * Returns a {@link Page} for {@code EXACT} and {@code APPROX}, a {@link Slice} without totals for {@code NONE}.
+     */
+    public Slice<BookSummary> getAllBooks(Pageable pageable, CountMode countMode) {
+        return read(listingFlight, List.of("all", pageable, countMode), () -> switch (countMode) {
+            case EXACT -> bookRepository.findAllBy(pageable);
+            case APPROX -> {
+                OptionalLong total = bookCounts.total();
+                yield total.isPresent()
+                        ? withCount(bookRepository.findSliceBy(pageable), total::getAsLong)
+                        : bookRepository.findAllBy(pageable);
+            }
+            case NONE -> bookRepository.findSliceBy(pageable);
+        });
     }
 
-    public Book getBookById(Long id) {
-        return bookRepository.findById(id).orElseThrow(() -> {
-            logger.info("Book with ID: {} not found.", id);
+    /**
+     * Sorted and filtered listing. {@code pageable} carries the query's sort. For {@code APPROX}, the total is
+     * maintained when there is no filter and cached per filter otherwise.
+     */
+    public Slice<BookSummary> getBooks(BookListingQuery query, Pageable pageable, CountMode countMode) {
+        // The filter key and the pageable's sort together identify the listing.
+        return read(listingFlight, List.of(query.filterKey(), pageable, countMode), () -> {
+            Specification<Book> specification = query.specification();
+            Slice<BookSummary> books = bookRepository.findSummaries(specification, pageable);
+            return switch (countMode) {
+                case EXACT -> withCount(books, () -> bookRepository.count(specification));
+                case APPROX -> withCount(books, () -> query.isFiltered()
+                        ? bookCounts.byFilter(query.filterKey(), () -> bookRepository.count(specification))
+                        : bookCounts.total().orElseGet(() -> bookRepository.count(specification)));
+                case NONE -> books;
+            };
+        });
+    }
+
+    public Slice<BookSummary> getAllBooksAfter(Integer afterId, int size) {
+        return read(listingFlight, List.of("after", afterId, size),
+                () -> bookRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(size)));
+    }
+
+    /**
+     * Read-through cached. Concurrent misses for the same id share one load, and one
+     * {@link BookNotFoundException} when the book does not exist: they are coalesced before the cache, which
+     * does not keep exceptions. The load itself runs inside the cache's compute, so the eviction of a concurrent
+     * {@link #deleteBook} waits for it and cannot be overtaken by a stale entry.
+     */
+    public Book getBookById(Integer id) {
+        if (!bookExistenceFilter.mightContainId(id)) {
+            throw new BookNotFoundException("Book not found.");
+        }
+        Book cached = bookCache.get(id, Book.class);
+        if (cached != null) {
+            return cached;
+        }
+        return read(bookFlight, id, () -> {
+            try {
+                return bookCache.get(id, () -> bookRepository.findById(id).orElseThrow(() -> {
+                    logger.debug("Book with ID: {} not found.", id);
+                    return new BookNotFoundException("Book not found.");
+                }));
+            } catch (Cache.ValueRetrievalException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw ex;
+            }
+        });
+    }
+
+    /**
+     * Returns the version of a book for conditional requests. Served from the book cache when the book is in
+     * it, otherwise from a query that reads only the version columns.
+     */
+    public BookVersion getBookVersion(Integer id) {
+        if (!bookExistenceFilter.mightContainId(id)) {
+            throw new BookNotFoundException("Book not found.");
+        }
+        Book cached = bookCache.get(id, Book.class);
+        if (cached != null) {
+            return new BookVersion(cached.getVersion(), cached.getUpdatedAt());
+        }
+        return read(versionFlight, id, () -> bookRepository.findVersionById(id).orElseThrow(() -> {
+            logger.debug("Book with ID: {} not found.", id);
             return new BookNotFoundException("Book not found.");
+        }));
+    }
+
+    public Slice<BookSummary> getBookByAuthor(String author, Pageable pageable, CountMode countMode) {
+        if (!bookExistenceFilter.mightContainAuthor(author)) {
+            throw new BookNotFoundException("No books found for the given author.");
+        }
+        Slice<BookSummary> books = read(authorFlight, List.of(author, pageable, countMode), () -> switch (countMode) {
+            case EXACT -> bookRepository.findByAuthor(author, pageable);
+            case APPROX -> {
+                OptionalLong total = bookCounts.byAuthor(author);
+                yield total.isPresent()
+                        ? withCount(bookRepository.findSliceByAuthor(author, pageable), total::getAsLong)
+                        : bookRepository.findByAuthor(author, pageable);
+            }
+            case NONE -> bookRepository.findSliceByAuthor(author, pageable);
         });
+        if (books.isEmpty()) {
+            logger.debug("No books found for author: {}", author);
+            throw new BookNotFoundException("No books found for the given author.");
+        }
+        return books;
     }
 
-    public Page<Book> getBookByAuthor(String author, Pageable pageable) {
-        Page<Book> books = bookRepository.findByAuthor(author, pageable);
+    public Slice<BookSummary> getBookByAuthorAfter(String author, Integer afterId, int size) {
+        if (!bookExistenceFilter.mightContainAuthor(author)) {
+            throw new BookNotFoundException("No books found for the given author.");
+        }
+        Slice<BookSummary> books = read(authorFlight, List.of(author, "after", afterId, size),
+                () -> bookRepository.findByAuthorAndIdGreaterThanOrderByIdAsc(author, afterId, PageRequest.ofSize(size)));
         if (books.isEmpty()) {
-            logger.info("No books found for author: {}", author);
+            logger.debug("No books found for author: {}", author);
             throw new BookNotFoundException("No books found for the given author.");
         }
         return books;
     }
 
-    public Page<Book> getBookByTitle(String name, Pageable pageable) {
-        Page<Book> books = bookRepository.findByTitleContainingIgnoreCase(name, pageable);
+    /**
+     * Titles served from the search index always come with an exact total, which the index has for free.
+     */
+    public Slice<BookSummary> getBookByTitle(String name, Pageable pageable, CountMode countMode) {
+        Slice<BookSummary> books = read(titleFlight, List.of(name, pageable, countMode), () -> {
+            Optional<Page<BookSummary>> indexed = searchByTitle(name, pageable);
+            return indexed.isPresent() ? indexed.get() : switch (countMode) {
+                case EXACT -> bookRepository.findByTitleContainingIgnoreCase(name, pageable);
+                case APPROX -> withCount(bookRepository.findSliceByTitleContainingIgnoreCase(name, pageable),
+                        () -> bookCounts.byTitle(name));
+                case NONE -> bookRepository.findSliceByTitleContainingIgnoreCase(name, pageable);
+            };
+        });
+        if (books.isEmpty()) {
+            logger.debug("No books found for title: {}", name);
+            throw new BookNotFoundException("No books found with the given title.");
+        }
+        return books;
+    }
+
+    public Slice<BookSummary> getBookByTitleAfter(String name, Integer afterId, int size) {
+        Slice<BookSummary> books = read(titleFlight, List.of(name, "after", afterId, size),
+                () -> bookRepository.findByTitleContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc(name, afterId, PageRequest.ofSize(size)));
         if (books.isEmpty()) {
-            logger.info("No books found for title: {}", name);
+            logger.debug("No books found for title: {}", name);
             throw new BookNotFoundException("No books found with the given title.");
         }
         return books;
     }
 
     public Book createBook(Book book) {
-        return bookRepository.save(book);
+        // Like batch and queued creates, always insert: with an id but no version, save would persist a
+        // detached entity.
+        book.setId(null);
+        Book saved = bookRepository.save(book);
+        bookCatalog.created(saved);
+        responseCache.invalidate(saved.getAuthor());
+        return saved;
+    }
+
+    /**
+     * Validates every book up front and rejects the whole batch if any of them is invalid.
+     */
+    public List<Book> createBooks(List<Book> books) {
+        List<ResponseBodyDTO.FieldErrorDTO> errors = new ArrayList<>();
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            if (book == null) {
+                errors.add(ResponseBodyDTO.FieldErrorDTO.builder()
+                        .field("[" + i + "]")
+                        .message("must not be null")
+                        .build());
+                continue;
+            }
+            for (ConstraintViolation<Book> violation : validator.validate(book)) {
+                errors.add(ResponseBodyDTO.FieldErrorDTO.builder()
+                        .field("[" + i + "]." + violation.getPropertyPath())
+                        .message(violation.getMessage())
+                        .build());
+            }
+        }
+        if (!errors.isEmpty()) {
+            logger.info("Rejected batch of {} books with {} errors.", books.size(), errors.size());
+            throw new BatchValidationException("Validation failed.", errors);
+        }
+
+        List<Book> created = bookBatchRepository.insertAll(books);
+        created.forEach(bookCatalog::created);
+        created.stream().map(Book::getAuthor).distinct().forEach(responseCache::invalidate);
+        return created;
+    }
+
+    /**
+     * Deletes the books that exist among the given ids and returns their ids.
+     */
+    public List<Integer> deleteBooks(Collection<Integer> ids) {
+        List<Integer> deleted = bookBatchRepository.deleteAllById(ids.stream().distinct().toList());
+        for (Integer id : deleted) {
+            bookCache.evict(id);
+            bookCatalog.deleted(id);
+        }
+        if (!deleted.isEmpty()) {
+            // The batch delete does not read the authors back, so every author listing is affected.
+            responseCache.invalidate(null);
+        }
+        return deleted;
     }
 
-    public void deleteBook(Long id) {
-        if (bookRepository.existsById(id)) {
-            bookRepository.deleteById(id);
-        } else {
-            logger.info("Book with ID: {} not found.", id);
+    /**
+     * The author is taken from the book cache, if present, to limit which cached listings the delete evicts.
+     */
+    @CacheEvict(cacheNames = "books", key = "#id")
+    public void deleteBook(Integer id) {
+        Book cached = bookCache.get(id, Book.class);
+        if (!bookExistenceFilter.mightContainId(id) || bookRepository.deleteByIdReturningCount(id) == 0) {
+            logger.debug("Book with ID: {} not found.", id);
             throw new BookNotFoundException("Book not found.");
         }
+        bookCatalog.deleted(id);
+        responseCache.invalidate(cached != null ? cached.getAuthor() : null);
+    }
+
+    /**
+     * Runs a read through the given flight, in a read-only transaction that only the caller running the query
+     * opens. A client reading its own writes reads from the primary, so it does not share reads that may go to
+     * a replica.
+     */
+    private <T> T read(SingleFlight flight, Object key, Supplier<T> query) {
+        Object flightKey = ReadYourWrites.isPinned() ? List.of("primary", key) : key;
+        return flight.execute(flightKey, () -> readOnlyTransaction.execute(status -> query.get()));
+    }
+
+    /**
+     * Turns a slice into a page using a count that may lag behind. The total is raised to what the slice proves
+     * exists, and on the last page it is exact without asking for the count, so a stale count never hides a page
+     * or invents one past the end.
+     */
+    private static Page<BookSummary> withCount(Slice<BookSummary> books, LongSupplier count) {
+        long seen = books.getPageable().getOffset() + books.getNumberOfElements();
+        long total = books.hasNext() ? Math.max(count.getAsLong(), seen + 1) : seen;
+        return new PageImpl<>(books.getContent(), books.getPageable(), total);
+    }
+
+    /**
+     * Answers a title search from the in-memory index, ranked by match quality. Empty when the index
+     * is not loaded yet or cannot serve the query, in which case the LIKE query is used.
+     */
+    private Optional<Page<BookSummary>> searchByTitle(String name, Pageable pageable) {
+        if (!bookSearchIndex.isReady()) {
+            return Optional.empty();
+        }
+        return bookSearchIndex.search(name).map(ids -> {
+            int from = (int) Math.min(pageable.getOffset(), ids.size());
+            int to = Math.min(from + pageable.getPageSize(), ids.size());
+            List<Integer> pageIds = ids.subList(from, to);
+
+            if (pageIds.isEmpty()) {
+                return new PageImpl<>(List.of(), pageable, ids.size());
+            }
+
+            Map<Integer, Integer> order = IntStream.range(0, pageIds.size()).boxed()
+                    .collect(Collectors.toMap(pageIds::get, Function.identity()));
+            List<BookSummary> content = bookRepository.findByIdIn(pageIds).stream()
+                    .sorted(Comparator.comparing(book -> order.get(book.id())))
+                    .toList();
+            return new PageImpl<>(content, pageable, ids.size());
+        });
     }
-}
\ No newline at end of file
+}
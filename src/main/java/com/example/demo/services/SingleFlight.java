@@ -0,0 +1,103 @@
+package com.example.demo.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Shares one in-flight load between concurrent callers asking for the same key.
+ * <p>
+ * The first caller for a key becomes the leader and runs the load; callers arriving while it runs wait for
+ * its result, or its exception, instead of running their own. Nothing is kept once the load completes, so a
+ * caller arriving afterwards starts a new one and never sees an older result than it would have loaded
+ * itself. The in-flight map locks per hash bin, so callers for different keys do not contend.
+ * <p>
+ * A follower waits at most {@code timeout}; after that it stops waiting on a load that may be stuck and runs
+ * its own.
+ */
+final class SingleFlight {
+
+    private final String name;
+    private final boolean enabled;
+    private final long timeoutNanos;
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter leaders;
+    private final Counter coalesced;
+    private final Counter timeouts;
+
+    SingleFlight(String name, boolean enabled, Duration timeout, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.enabled = enabled;
+        this.timeoutNanos = timeout.toNanos();
+        this.leaders = counter(meterRegistry, name, "leader");
+        this.coalesced = counter(meterRegistry, name, "coalesced");
+        this.timeouts = counter(meterRegistry, name, "timeout");
+    }
+
+    /**
+     * Returns the result of the load in flight for {@code key}, or runs {@code load} if there is none.
+     * Keys must implement {@code equals} and {@code hashCode}.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(Object key, Supplier<T> load) {
+        if (!enabled) {
+            return load.get();
+        }
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, own);
+        if (leader == null) {
+            leaders.increment();
+            return (T) lead(key, own, load);
+        }
+
+        coalesced.increment();
+        try {
+            return (T) leader.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw (Error) ex.getCause();
+        } catch (TimeoutException ex) {
+            timeouts.increment();
+            return load.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shared " + name + " load.", ex);
+        }
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    private Object lead(Object key, CompletableFuture<Object> own, Supplier<?> load) {
+        try {
+            Object result = load.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            own.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String outcome) {
+        return Counter.builder("bookstore.single-flight.calls")
+                .description("Book reads by whether they ran the query or shared one already in flight")
+                .tag("name", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.demo.utils;
+
+import com.example.demo.exceptions.InvalidRequestParameterException;
+import com.example.demo.models.Book;
+import com.example.demo.repositories.BookSpecifications;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The {@code sort=} and filter options of {@code GET /api/books}, e.g. {@code sort=year,desc&yearFrom=1950}.
+ * <p>
+ * Only combinations that an index can serve in order are accepted, so a listing never falls back to a full
+ * scan or a filesort. The most selective filter picks the index and the sort must follow it:
+ * <ul>
+ *     <li>{@code author}: sort by author, or by id for a single author, on (author, id, title, year), which
+ *     also evaluates the year and title filters;</li>
+ *     <li>{@code titlePrefix}: sort by title on (title, id); a year range is rejected, as it could make the
+ *     year index the cheaper one and the sort a filesort;</li>
+ *     <li>{@code yearFrom}/{@code yearTo}: sort by year on (year, id);</li>
+ *     <li>no filter: sort by any field, each of which has an index ending in id.</li>
+ * </ul>
+ * Ties are broken by id, in the sort direction.
+ */
+public final class BookListingQuery {
+
+    private static final int MAX_AUTHORS = 100;
+
+    private enum Field {
+        ID, TITLE, AUTHOR, YEAR;
+
+        String property() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Field sortField;
+    private final Sort.Direction direction;
+    private final boolean sorted;
+    private final Integer yearFrom;
+    private final Integer yearTo;
+    private final List<String> authors;
+    private final String titlePrefix;
+
+    private BookListingQuery(Field sortField, Sort.Direction direction, boolean sorted, Integer yearFrom,
+                             Integer yearTo, List<String> authors, String titlePrefix) {
+        this.sortField = sortField;
+        this.direction = direction;
+        this.sorted = sorted;
+        this.yearFrom = yearFrom;
+        this.yearTo = yearTo;
+        this.authors = authors;
+        this.titlePrefix = titlePrefix;
+    }
+
+    /**
+     * Parses and checks the options. {@code sort} is a field name optionally followed by {@code ,asc} or
+     * {@code ,desc}; without it, the listing follows the order of the index the filters use. Blank values
+     * count as absent.
+     */
+    public static BookListingQuery parse(String sort, Integer yearFrom, Integer yearTo, List<String> authors,
+                                         String titlePrefix) {
+        if (yearFrom != null && yearTo != null && yearFrom > yearTo) {
+            throw new InvalidRequestParameterException("yearFrom", "yearFrom must not be after yearTo.");
+        }
+        List<String> authorList = distinctNonBlank(authors);
+        if (authorList.size() > MAX_AUTHORS) {
+            throw new InvalidRequestParameterException("author", "At most " + MAX_AUTHORS + " authors can be given.");
+        }
+        String prefix = titlePrefix == null || titlePrefix.isBlank() ? null : titlePrefix;
+
+        List<Field> allowed;
+        if (!authorList.isEmpty()) {
+            allowed = authorList.size() == 1 ? List.of(Field.ID, Field.AUTHOR) : List.of(Field.AUTHOR);
+        } else if (prefix != null) {
+            if (yearFrom != null || yearTo != null) {
+                throw new InvalidRequestParameterException("titlePrefix",
+                        "titlePrefix can only be combined with a year range when author is given.");
+            }
+            allowed = List.of(Field.TITLE);
+        } else if (yearFrom != null || yearTo != null) {
+            allowed = List.of(Field.YEAR);
+        } else {
+            allowed = List.of(Field.values());
+        }
+
+        if (sort == null || sort.isBlank()) {
+            return new BookListingQuery(allowed.get(0), Sort.Direction.ASC, false, yearFrom, yearTo,
+                    authorList.isEmpty() ? null : authorList, prefix);
+        }
+        String[] parts = sort.split(",", -1);
+        Field field = parseField(parts[0]);
+        Sort.Direction direction = parts.length == 1 ? Sort.Direction.ASC : parseDirection(parts[1]);
+        if (parts.length > 2) {
+            throw invalidSort();
+        }
+        if (!allowed.contains(field)) {
+            throw new InvalidRequestParameterException("sort", "Sorting by " + field.property()
+                    + " is not supported with these filters. Supported: " + names(allowed) + ".");
+        }
+        return new BookListingQuery(field, direction, true, yearFrom, yearTo,
+                authorList.isEmpty() ? null : authorList, prefix);
+    }
+
+    /**
+     * True when no sort and no filter were given, so the plain listing applies.
+     */
+    public boolean isDefault() {
+        return !sorted && !isFiltered();
+    }
+
+    public boolean isFiltered() {
+        return yearFrom != null || yearTo != null || authors != null || titlePrefix != null;
+    }
+
+    public Sort sort() {
+        if (sortField == Field.ID) {
+            // A single author is constant, so sorting by it too changes nothing but spells out the index order.
+            return authors == null ? Sort.by(direction, Field.ID.property())
+                    : Sort.by(direction, Field.AUTHOR.property(), Field.ID.property());
+        }
+        return Sort.by(direction, sortField.property(), Field.ID.property());
+    }
+
+    public Specification<Book> specification() {
+        List<Specification<Book>> specifications = new ArrayList<>();
+        if (authors != null) {
+            specifications.add(BookSpecifications.authorIn(authors));
+        }
+        if (titlePrefix != null) {
+            specifications.add(BookSpecifications.titleStartsWith(titlePrefix));
+        }
+        if (yearFrom != null) {
+            specifications.add(BookSpecifications.yearAtLeast(yearFrom));
+        }
+        if (yearTo != null) {
+            specifications.add(BookSpecifications.yearAtMost(yearTo));
+        }
+        return Specification.allOf(specifications);
+    }
+
+    /**
+     * Identifies the filtered set regardless of its order, for caching its count.
+     */
+    public String filterKey() {
+        return "year=" + yearFrom + ".." + yearTo + "&author=" + authors + "&titlePrefix=" + titlePrefix;
+    }
+
+    private static List<String> distinctNonBlank(List<String> values) {
+        if (values == null) {
+            return List.of();
+        }
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                distinct.add(value);
+            }
+        }
+        return List.copyOf(distinct);
+    }
+
+    private static Field parseField(String value) {
+        try {
+            return Field.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw invalidSort();
+        }
+    }
+
+    private static Sort.Direction parseDirection(String value) {
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "asc" -> Sort.Direction.ASC;
+            case "desc" -> Sort.Direction.DESC;
+            default -> throw invalidSort();
+        };
+    }
+
+    private static InvalidRequestParameterException invalidSort() {
+        return new InvalidRequestParameterException("sort",
+                "Sort must be one of id, title, author, year, optionally followed by ,asc or ,desc.");
+    }
+
+    private static String names(List<Field> fields) {
+        return String.join(", ", fields.stream().map(Field::property).toList());
+    }
+}
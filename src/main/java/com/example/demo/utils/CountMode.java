@@ -0,0 +1,44 @@
+package com.example.demo.utils;
+
+import com.example.demo.exceptions.InvalidRequestParameterException;
+
+import java.util.Locale;
+
+/**
+ * The {@code count=} option of the paged listing endpoints: how {@code totalItems} and {@code totalPages}
+ * are filled in.
+ */
+public enum CountMode {
+
+    /**
+     * A count query on every request. The default.
+     */
+    EXACT,
+
+    /**
+     * Counters kept in memory, or a count cached for a short while. May lag behind writes made through other
+     * instances, but is exact on the last page.
+     */
+    APPROX,
+
+    /**
+     * No totals; {@code hasNext} tells whether another page follows.
+     */
+    NONE;
+
+    /**
+     * Parses the option. A missing or blank value selects {@link #EXACT}, so that clients that do not ask for
+     * approximate totals keep getting exact ones.
+     */
+    public static CountMode parse(String value) {
+        if (value == null || value.isBlank()) {
+            return EXACT;
+        }
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "exact" -> EXACT;
+            case "approx" -> APPROX;
+            case "none" -> NONE;
+            default -> throw new InvalidRequestParameterException("count", "Count must be one of: exact, approx, none.");
+        };
+    }
+}
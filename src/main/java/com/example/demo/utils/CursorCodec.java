@@ -0,0 +1,45 @@
+package com.example.demo.utils;
+
+import com.example.demo.exceptions.InvalidRequestParameterException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the opaque {@code after} cursor used by keyset pagination.
+ * The cursor wraps the id of the last book of the previous slice.
+ */
+public final class CursorCodec {
+
+    private static final String PREFIX = "id:";
+
+    private CursorCodec() {
+    }
+
+    public static String encode(Integer lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the id to seek after. An empty cursor starts from the beginning.
+     */
+    public static Integer decode(String cursor) {
+        if (cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new IllegalArgumentException();
+            }
+            int id = Integer.parseInt(value.substring(PREFIX.length()));
+            if (id < 0) {
+                throw new IllegalArgumentException();
+            }
+            return id;
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidRequestParameterException("after", "Invalid cursor.");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.utils;
+
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.exceptions.InvalidRequestParameterException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@code fields=} sparse fieldset of the listing endpoints, e.g. {@code fields=title,year}. The id is always
+ * returned, so that every row can still be identified.
+ */
+public final class SparseFields {
+
+    private static final Set<String> ALLOWED = Set.of("id", "title", "author", "year");
+
+    private static final SparseFields ALL = new SparseFields(null);
+
+    private final Set<String> fields;
+
+    private SparseFields(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Parses a comma-separated field list. A missing or blank value selects every field.
+     */
+    public static SparseFields parse(String value) {
+        if (value == null || value.isBlank()) {
+            return ALL;
+        }
+        Set<String> fields = new LinkedHashSet<>();
+        fields.add("id");
+        for (String field : value.split(",")) {
+            String name = field.trim().toLowerCase(Locale.ROOT);
+            if (!ALLOWED.contains(name)) {
+                throw new InvalidRequestParameterException("fields", "Fields must be a subset of: id, title, author, year.");
+            }
+            fields.add(name);
+        }
+        return fields.size() == ALLOWED.size() ? ALL : new SparseFields(fields);
+    }
+
+    /**
+     * Returns the books unchanged when every field is selected, otherwise one map per book holding only the
+     * selected fields.
+     */
+    public List<?> apply(List<BookSummary> books) {
+        if (fields == null) {
+            return books;
+        }
+        List<Map<String, Object>> rows = new ArrayList<>(books.size());
+        for (BookSummary book : books) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                switch (field) {
+                    case "id" -> row.put(field, book.id());
+                    case "title" -> row.put(field, book.title());
+                    case "author" -> row.put(field, book.author());
+                    default -> row.put(field, book.year());
+                }
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,10 @@
+-- Baseline: the books table as Hibernate created it before migrations were introduced.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate).
+CREATE TABLE IF NOT EXISTS books (
+    id          INT          NOT NULL AUTO_INCREMENT,
+    title       VARCHAR(255) NOT NULL,
+    author      VARCHAR(255) NOT NULL,
+    description VARCHAR(100),
+    year        INT          NOT NULL,
+    PRIMARY KEY (id)
+);
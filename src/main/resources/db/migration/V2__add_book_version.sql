@@ -0,0 +1,3 @@
+-- Optimistic-lock version and modification time, used for ETag and Last-Modified on book reads.
+ALTER TABLE books ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE books ADD COLUMN updated_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6);
@@ -0,0 +1,10 @@
+-- Indexes for the query shapes of BookRepository. InnoDB appends the primary key to every secondary index;
+-- id is still listed where the query orders or seeks on it.
+
+-- author = ? [AND id > ?] ORDER BY id: equality, then the keyset order. Also covers the BookSummary columns,
+-- so author listings and their counts never touch the clustered index.
+CREATE INDEX idx_books_author_id ON books (author, id, title, year);
+
+-- ORDER BY year / title, with id as the tie-breaker for stable pages.
+CREATE INDEX idx_books_year_id ON books (year, id);
+CREATE INDEX idx_books_title_id ON books (title, id);
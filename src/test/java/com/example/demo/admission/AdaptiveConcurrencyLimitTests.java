@@ -0,0 +1,137 @@
+package com.example.demo.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTests {
+
+	private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	@Test
+	void shedsSearchesAndWritesBeforeReads() {
+		AdaptiveConcurrencyLimit limit = limit(10);
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(limit.tryAcquire(AdaptiveConcurrencyLimit.Priority.READ)).isTrue();
+		}
+		assertThat(limit.tryAcquire(AdaptiveConcurrencyLimit.Priority.SEARCH)).isFalse();
+		assertThat(limit.tryAcquire(AdaptiveConcurrencyLimit.Priority.WRITE)).isTrue();
+		assertThat(limit.tryAcquire(AdaptiveConcurrencyLimit.Priority.WRITE)).isTrue();
+		assertThat(limit.tryAcquire(AdaptiveConcurrencyLimit.Priority.WRITE)).isFalse();
+		for (int i = 0; i < 3; i++) {
+			assertThat(limit.tryAcquire(AdaptiveConcurrencyLimit.Priority.READ)).isTrue();
+		}
+		assertThat(limit.tryAcquire(AdaptiveConcurrencyLimit.Priority.READ)).isFalse();
+		assertThat(limit.getInFlight()).isEqualTo(10);
+	}
+
+	@Test
+	void growsWhileConnectionsAreFreeAndShrinksWhenCallersQueue() {
+		AdaptiveConcurrencyLimit limit = limit(20);
+		fill(limit);
+
+		sample(limit, 100, 0, 10 * MILLIS);
+		int grown = limit.getLimit();
+		assertThat(grown).isGreaterThan(20);
+
+		fill(limit);
+		sample(limit, 100, 30 * MILLIS, 10 * MILLIS);
+		assertThat(limit.getLimit()).isLessThan(grown / 2);
+	}
+
+	@Test
+	void doesNotGrowWhileMostlyIdle() {
+		AdaptiveConcurrencyLimit limit = limit(20);
+		limit.tryAcquire(AdaptiveConcurrencyLimit.Priority.READ);
+
+		sample(limit, 100, 0, 10 * MILLIS);
+
+		assertThat(limit.getLimit()).isEqualTo(20);
+	}
+
+	@Test
+	void backsOffWhenRequestsFailWithOverload() {
+		AdaptiveConcurrencyLimit limit = limit(20);
+
+		limit.tryAcquire(AdaptiveConcurrencyLimit.Priority.READ);
+		limit.release(true);
+
+		assertThat(limit.getLimit()).isEqualTo(18);
+	}
+
+	/**
+	 * Offers twice what a database with 4 connections and 10 ms queries can serve, open loop, for 3 seconds of
+	 * simulated time. Without a limit the backlog, and so the latency, would grow by a second every second; with
+	 * it the excess is turned away and the latency of admitted requests stays within a small multiple of the
+	 * query. The connections are simulated event by event, so the outcome does not depend on the machine.
+	 */
+	@Test
+	void keepsLatencyStableAtTwiceCapacity() {
+		AdaptiveConcurrencyLimit limit = limit(20);
+		int connections = 4;
+		long queryNanos = 10 * MILLIS;
+		int perTick = 8;
+		long tickNanos = 10 * MILLIS;
+		long end = TimeUnit.SECONDS.toNanos(3);
+
+		Deque<Long> waiting = new ArrayDeque<>();
+		// Running queries as {finished, requested, acquired}, earliest finish first.
+		PriorityQueue<long[]> running = new PriorityQueue<>(Comparator.comparingLong(query -> query[0]));
+		List<Long> latencies = new ArrayList<>();
+		long rejected = 0;
+		for (long now = 0; now < end || !running.isEmpty(); now += tickNanos) {
+			while (!running.isEmpty() && running.peek()[0] <= now) {
+				long[] query = running.poll();
+				long released = query[0];
+				limit.onConnectionReleased(query[2] - query[1], released - query[2]);
+				limit.release(false);
+				latencies.add(released - query[1]);
+				if (!waiting.isEmpty()) {
+					running.add(new long[]{released + queryNanos, waiting.poll(), released});
+				}
+			}
+			for (int i = 0; now < end && i < perTick; i++) {
+				if (!limit.tryAcquire(AdaptiveConcurrencyLimit.Priority.READ)) {
+					rejected++;
+				} else if (running.size() < connections) {
+					running.add(new long[]{now + queryNanos, now, now});
+				} else {
+					waiting.add(now);
+				}
+			}
+		}
+
+		long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+		double p99Millis = sorted[(int) Math.ceil(0.99 * sorted.length) - 1] / (double) MILLIS;
+		assertThat(rejected).isPositive();
+		// Capacity is 1200 queries in 3 seconds; the limit must not starve the database either.
+		assertThat(sorted.length).isGreaterThan(1100);
+		assertThat(p99Millis).isLessThan(100);
+	}
+
+	private static void fill(AdaptiveConcurrencyLimit limit) {
+		while (limit.tryAcquire(AdaptiveConcurrencyLimit.Priority.READ)) {
+			// Take every free slot.
+		}
+	}
+
+	private static void sample(AdaptiveConcurrencyLimit limit, int samples, long waitNanos, long holdNanos) {
+		for (int i = 0; i < samples; i++) {
+			limit.onConnectionReleased(waitNanos, holdNanos);
+		}
+	}
+
+	private static AdaptiveConcurrencyLimit limit(int initialLimit) {
+		return new AdaptiveConcurrencyLimit(true, initialLimit, 4, 200, new SimpleMeterRegistry());
+	}
+}
@@ -0,0 +1,44 @@
+package com.example.demo.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientRateLimiterTests {
+
+	private final AtomicLong now = new AtomicLong();
+
+	private final ClientRateLimiter rateLimiter = new ClientRateLimiter(true, 2, 3, 100, now::get);
+
+	@Test
+	void allowsABurstThenTheRate() {
+		assertThat(rateLimiter.tryAcquire("10.0.0.1")).isZero();
+		assertThat(rateLimiter.tryAcquire("10.0.0.1")).isZero();
+		assertThat(rateLimiter.tryAcquire("10.0.0.1")).isZero();
+		assertThat(rateLimiter.tryAcquire("10.0.0.1")).isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+
+		now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+		assertThat(rateLimiter.tryAcquire("10.0.0.1")).isZero();
+		assertThat(rateLimiter.tryAcquire("10.0.0.1")).isPositive();
+
+		// Idle time refills the bucket up to the burst, no further.
+		now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+		for (int i = 0; i < 3; i++) {
+			assertThat(rateLimiter.tryAcquire("10.0.0.1")).isZero();
+		}
+		assertThat(rateLimiter.tryAcquire("10.0.0.1")).isPositive();
+	}
+
+	@Test
+	void limitsClientsIndependently() {
+		for (int i = 0; i < 3; i++) {
+			rateLimiter.tryAcquire("10.0.0.1");
+		}
+
+		assertThat(rateLimiter.tryAcquire("10.0.0.1")).isPositive();
+		assertThat(rateLimiter.tryAcquire("10.0.0.2")).isZero();
+	}
+}
@@ -0,0 +1,59 @@
+package com.example.demo.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTests {
+
+	@Test
+	void writeByKnownAuthorOnlyChangesThatAuthorsPages() {
+		ResponseCache cache = responseCache();
+		String all = cache.generation(null);
+		String tolkien = cache.generation("Tolkien");
+		String conrad = cache.generation("Conrad");
+
+		cache.invalidate("tolkien");
+
+		assertThat(cache.generation(null)).isNotEqualTo(all);
+		assertThat(cache.generation("Tolkien")).isNotEqualTo(tolkien);
+		assertThat(cache.generation("Conrad")).isEqualTo(conrad);
+	}
+
+	@Test
+	void writeByUnknownAuthorChangesEveryPage() {
+		ResponseCache cache = responseCache();
+		String all = cache.generation(null);
+		String conrad = cache.generation("Conrad");
+
+		cache.invalidate(null);
+
+		assertThat(cache.generation(null)).isNotEqualTo(all);
+		assertThat(cache.generation("Conrad")).isNotEqualTo(conrad);
+	}
+
+	@Test
+	void compressesLargeBodies() throws IOException {
+		ResponseCache cache = responseCache();
+		byte[] body = "{\"data\":[]}".repeat(200).getBytes();
+
+		cache.put("small", "{}".getBytes(), "application/json", "\"1\"", null);
+		cache.put("large", body, "application/json", "\"2\"", null);
+
+		assertThat(cache.get("small").gzipped()).isFalse();
+		assertThat(cache.get("large").gzipped()).isTrue();
+		assertThat(new GZIPInputStream(new ByteArrayInputStream(cache.get("large").body())).readAllBytes())
+				.isEqualTo(body);
+	}
+
+	private static ResponseCache responseCache() {
+		return new ResponseCache(true, DataSize.ofMegabytes(1), Duration.ofMinutes(1), true, new SimpleMeterRegistry());
+	}
+}
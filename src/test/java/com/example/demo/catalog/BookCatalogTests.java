@@ -0,0 +1,104 @@
+package com.example.demo.catalog;
+
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.models.Book;
+import com.example.demo.repositories.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+class BookCatalogTests {
+
+	private final BookRepository bookRepository = mock(BookRepository.class);
+
+	private final BookExistenceFilter filter = new BookExistenceFilter(true, true, 1000, 0.01);
+
+	private final BookCatalog catalog = new BookCatalog(bookRepository, List.of(filter), 100, Duration.ZERO, Duration.ZERO);
+
+	@AfterEach
+	void stop() {
+		catalog.stop();
+	}
+
+	@Test
+	void rescansFromTheIdSettledOneRefreshEarlier() {
+		when(bookRepository.findByIdGreaterThanOrderByIdAsc(eq(0), any())).thenReturn(books(1, 2));
+		catalog.load();
+
+		// Book 4 committed before book 3, which was still in flight.
+		when(bookRepository.findByIdGreaterThanOrderByIdAsc(eq(2), any())).thenReturn(books(4), books(3, 4));
+		when(bookRepository.findByIdGreaterThanOrderByIdAsc(eq(4), any())).thenReturn(books());
+		catalog.refresh();
+
+		assertThat(filter.mightContainId(3)).isFalse();
+		assertThat(filter.mightContainId(4)).isTrue();
+
+		catalog.refresh();
+		catalog.refresh();
+
+		assertThat(filter.mightContainId(3)).isTrue();
+		InOrder order = inOrder(bookRepository);
+		order.verify(bookRepository).findByIdGreaterThanOrderByIdAsc(0, PageRequest.ofSize(100));
+		order.verify(bookRepository, times(2)).findByIdGreaterThanOrderByIdAsc(2, PageRequest.ofSize(100));
+		order.verify(bookRepository).findByIdGreaterThanOrderByIdAsc(4, PageRequest.ofSize(100));
+	}
+
+	@Test
+	void replaysDeletesThatRaceWithARefresh() {
+		when(bookRepository.findByIdGreaterThanOrderByIdAsc(eq(0), any())).thenReturn(books(1));
+		catalog.load();
+		when(bookRepository.findByIdGreaterThanOrderByIdAsc(eq(1), any())).thenAnswer(invocation -> {
+			catalog.deleted(2);
+			return books(2);
+		});
+
+		catalog.refresh();
+
+		assertThat(filter.mightContainId(2)).isFalse();
+	}
+
+	@Test
+	void reconcileDeletesBooksGoneFromTheTable() {
+		when(bookRepository.findByIdGreaterThanOrderByIdAsc(eq(0), any())).thenReturn(books(1, 2, 3)).thenAnswer(invocation -> {
+			// Deleted through another instance; book 4 is created here while the scan runs.
+			catalog.created(book(4));
+			return books(1, 3);
+		});
+		catalog.load();
+
+		catalog.reconcile();
+
+		assertThat(filter.mightContainId(1)).isTrue();
+		assertThat(filter.mightContainId(2)).isFalse();
+		assertThat(filter.mightContainId(3)).isTrue();
+		assertThat(filter.mightContainId(4)).isTrue();
+	}
+
+	private static Book book(int id) {
+		Book book = new Book();
+		book.setId(id);
+		book.setTitle("Title " + id);
+		book.setAuthor("Author " + id);
+		book.setYear(2000);
+		return book;
+	}
+
+	private static SliceImpl<BookSummary> books(int... ids) {
+		return new SliceImpl<>(IntStream.of(ids).mapToObj(id -> new BookSummary(id, "Title " + id, "Author " + id, 2000))
+				.toList());
+	}
+}
@@ -0,0 +1,73 @@
+package com.example.demo.catalog;
+
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.repositories.BookRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookCountsTests {
+
+	@Test
+	void maintainsTotalAndAuthorCountsIdempotently() {
+		BookCounts counts = new BookCounts(mock(BookRepository.class), Duration.ofMinutes(1), 100);
+		counts.onLoaded(book(1, "Joseph Conrad"));
+		counts.onLoaded(book(2, "J. R. R. Tolkien"));
+
+		assertThat(counts.total()).isEmpty();
+
+		counts.onCreated(book(2, "J. R. R. Tolkien"));
+		counts.onLoadCompleted();
+		counts.onCreated(book(3, "j. r. r. tolkien"));
+		counts.onDeleted(1);
+		counts.onDeleted(1);
+		counts.onDeleted(99);
+
+		assertThat(counts.total()).hasValue(2);
+		assertThat(counts.byAuthor("J. R. R. Tolkien")).hasValue(2);
+		assertThat(counts.byAuthor("Joseph Conrad")).hasValue(0);
+		assertThat(counts.byAuthor("Nobody")).hasValue(0);
+	}
+
+	@Test
+	void countsSparseIds() {
+		BookCounts counts = new BookCounts(mock(BookRepository.class), Duration.ofMinutes(1), 100);
+		counts.onLoaded(book(Integer.MAX_VALUE, "Joseph Conrad"));
+		counts.onLoaded(book(5_000, "Joseph Conrad"));
+		// Dense enough by now to hold id 5000 in the array.
+		for (int id = 1; id <= 3_000; id++) {
+			counts.onLoaded(book(id, "J. R. R. Tolkien"));
+		}
+		counts.onLoadCompleted();
+		counts.onDeleted(5_000);
+		counts.onDeleted(5_000);
+
+		assertThat(counts.total()).hasValue(3_001);
+		assertThat(counts.byAuthor("Joseph Conrad")).hasValue(1);
+
+		counts.onDeleted(Integer.MAX_VALUE);
+
+		assertThat(counts.byAuthor("Joseph Conrad")).hasValue(0);
+	}
+
+	@Test
+	void cachesTitleCounts() {
+		BookRepository bookRepository = mock(BookRepository.class);
+		when(bookRepository.countByTitleContainingIgnoreCase("lord")).thenReturn(7L);
+		BookCounts counts = new BookCounts(bookRepository, Duration.ofMinutes(1), 100);
+
+		assertThat(counts.byTitle("Lord")).isEqualTo(7);
+		assertThat(counts.byTitle("lord")).isEqualTo(7);
+		verify(bookRepository, times(1)).countByTitleContainingIgnoreCase("lord");
+	}
+
+	private static BookSummary book(int id, String author) {
+		return new BookSummary(id, "Title " + id, author, 2000);
+	}
+}
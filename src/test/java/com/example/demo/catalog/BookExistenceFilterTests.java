@@ -0,0 +1,69 @@
+package com.example.demo.catalog;
+
+import com.example.demo.dtos.BookSummary;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookExistenceFilterTests {
+
+	@Test
+	void answersMaybeUntilLoaded() {
+		BookExistenceFilter filter = new BookExistenceFilter(true, true, 1000, 0.01);
+
+		assertThat(filter.mightContainId(42)).isTrue();
+		assertThat(filter.mightContainAuthor("Nobody")).isTrue();
+	}
+
+	@Test
+	void answersMaybeUnlessEveryWriteGoesThroughThisInstance() {
+		BookExistenceFilter filter = new BookExistenceFilter(true, false, 1000, 0.01);
+		filter.onLoaded(book(3, "Ursula K. Le Guin"));
+		filter.onLoadCompleted();
+
+		assertThat(filter.mightContainId(2)).isTrue();
+		assertThat(filter.mightContainAuthor("Italo Calvino")).isTrue();
+	}
+
+	@Test
+	void tracksIdsExactlyAndAuthorsWithoutFalseNegatives() {
+		BookExistenceFilter filter = new BookExistenceFilter(true, true, 1000, 0.01);
+		filter.onLoaded(book(1, "Ursula K. Le Guin"));
+		filter.onLoadCompleted();
+		filter.onCreated(book(3, "Gabriel García Márquez"));
+
+		assertThat(filter.mightContainId(1)).isTrue();
+		assertThat(filter.mightContainId(2)).isFalse();
+		assertThat(filter.mightContainId(3)).isTrue();
+		assertThat(filter.mightContainAuthor("ursula k. le guin")).isTrue();
+		assertThat(filter.mightContainAuthor("Gabriel Garcia Marquez")).isTrue();
+		assertThat(filter.mightContainAuthor("Italo Calvino")).isFalse();
+
+		filter.onDeleted(1);
+
+		assertThat(filter.mightContainId(1)).isFalse();
+	}
+
+	@Test
+	void answersMaybeAboveTheHighestIdSeen() {
+		BookExistenceFilter filter = new BookExistenceFilter(true, true, 1000, 0.01);
+		filter.onLoaded(book(1, "Ursula K. Le Guin"));
+		filter.onLoadCompleted();
+
+		// Created through another instance.
+		assertThat(filter.mightContainId(2)).isTrue();
+
+		filter.onCreated(book(3, "Italo Calvino"));
+
+		assertThat(filter.mightContainId(2)).isFalse();
+
+		// Picked up by the catalog's re-scan.
+		filter.onLoaded(book(2, "Italo Calvino"));
+
+		assertThat(filter.mightContainId(2)).isTrue();
+	}
+
+	private static BookSummary book(int id, String author) {
+		return new BookSummary(id, "Title " + id, author, 2000);
+	}
+}
@@ -0,0 +1,38 @@
+package com.example.demo.config;
+
+import com.example.demo.BookstoreApplication;
+import org.junit.jupiter.api.Test;
+import org.springdoc.webmvc.api.OpenApiWebMvcResource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StartupReportTests {
+
+	@Test
+	void prodProfileDefersBeansToFirstUse() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(8192);
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BookstoreApplication.class)
+				.applicationStartup(startup)
+				.profiles("prod")
+				.run("--spring.datasource.url=jdbc:h2:mem:startup;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR;IGNORE_UNKNOWN_SETTINGS=TRUE",
+						"--spring.datasource.username=sa",
+						"--spring.datasource.password=",
+						"--server.port=0")) {
+			List<String> beans = StartupReport.beansInstantiatedDuringRefresh(startup.getBufferedTimeline()).stream()
+					.map(StartupReport.BeanTiming::name)
+					.toList();
+
+			assertThat(beans).contains("flywayInitializer")
+					.doesNotContain("bookService", "bookController", "bookExportController");
+			assertThat(context.getBean("&entityManagerFactory", LocalContainerEntityManagerFactoryBean.class)
+					.getBootstrapExecutor()).isNotNull();
+			assertThat(context.getBeanNamesForType(OpenApiWebMvcResource.class)).isEmpty();
+		}
+	}
+}
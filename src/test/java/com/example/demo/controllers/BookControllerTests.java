@@ -0,0 +1,229 @@
+package com.example.demo.controllers;
+
+import com.example.demo.catalog.BookCounts;
+import com.example.demo.catalog.BookExistenceFilter;
+import com.example.demo.dtos.BookSummary;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the book endpoints against an in-memory database built by the Flyway migrations.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:book-controller;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR;IGNORE_UNKNOWN_SETTINGS=TRUE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password="
+})
+@AutoConfigureMockMvc
+class BookControllerTests {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private BookExistenceFilter bookExistenceFilter;
+
+	@Autowired
+	private BookCounts bookCounts;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Test
+	void findsABookInsertedBehindTheCatalogsBack() throws Exception {
+		awaitCatalogLoaded();
+		// Inserted directly, below an id this instance has already seen.
+		jdbcTemplate.update("INSERT INTO books (id, title, author, year) VALUES (1000, 'Nostromo', 'Joseph Conrad', 1904)");
+		bookExistenceFilter.onCreated(new BookSummary(1001, "Lord Jim", "Somebody Else", 1900));
+
+		mvc.perform(get("/api/books/1000"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data[0].title").value("Nostromo"));
+		mvc.perform(get("/api/books/author/Joseph Conrad"))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void conditionalReadOfABookIsCheckedOnce() throws Exception {
+		String location = "/api/books/" + createBook("Lord Jim", "Joseph Conrad", 1900);
+		String eTag = mvc.perform(get(location))
+				.andExpect(status().isOk())
+				.andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mvc.perform(get(location).header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified());
+		assertThat(mvc.perform(get(location).header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeaders(HttpHeaders.ETAG)).containsExactly(eTag);
+	}
+
+	@Test
+	void listingsAreNotValidatedByModificationTimeAlone() throws Exception {
+		createBook("The Left Hand of Darkness", "Ursula K. Le Guin", 1969);
+		String tomorrow = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusDays(1));
+
+		// The second request is served from the response cache.
+		for (int i = 0; i < 2; i++) {
+			mvc.perform(get("/api/books/author/{name}", "Ursula K. Le Guin").header(HttpHeaders.IF_MODIFIED_SINCE, tomorrow))
+					.andExpect(status().isOk())
+					.andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED));
+		}
+		String eTag = mvc.perform(get("/api/books/author/{name}", "Ursula K. Le Guin"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		mvc.perform(get("/api/books/author/{name}", "Ursula K. Le Guin").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void servesBooksFromTheCache() throws Exception {
+		int id = createBook("Kim", "Rudyard Kipling", 1901);
+		mvc.perform(get("/api/books/{id}", id)).andExpect(status().isOk());
+
+		// Deleted behind the cache's back: the cached book is still served.
+		jdbcTemplate.update("DELETE FROM books WHERE id = ?", id);
+
+		assertThat(cacheManager).isInstanceOf(CaffeineCacheManager.class);
+		assertThat(bookCache().get(id)).isNotNull();
+		mvc.perform(get("/api/books/{id}", id))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data[0].title").value("Kim"));
+	}
+
+	@Test
+	void evictsDeletedBooksFromTheCache() throws Exception {
+		int deleted = createBook("The Jungle Book", "Rudyard Kipling", 1894);
+		int deletedInBatch = createBook("Just So Stories", "Rudyard Kipling", 1902);
+		mvc.perform(get("/api/books/{id}", deleted)).andExpect(status().isOk());
+		mvc.perform(get("/api/books/{id}", deletedInBatch)).andExpect(status().isOk());
+
+		mvc.perform(delete("/api/books/{id}", deleted)).andExpect(status().isOk());
+		mvc.perform(delete("/api/books/batch").contentType(MediaType.APPLICATION_JSON).content("[" + deletedInBatch + "]"))
+				.andExpect(status().isOk());
+
+		assertThat(bookCache().get(deleted)).isNull();
+		assertThat(bookCache().get(deletedInBatch)).isNull();
+		mvc.perform(get("/api/books/{id}", deleted)).andExpect(status().isNotFound());
+		mvc.perform(get("/api/books/{id}", deletedInBatch)).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void rejectsAWholeBatchWithAnInvalidBook() throws Exception {
+		mvc.perform(post("/api/books/batch").contentType(MediaType.APPLICATION_JSON)
+						.content("[{\"title\":\"Typhoon\",\"author\":\"Batch Author\",\"year\":1902},"
+								+ "{\"title\":\"\",\"author\":\"Batch Author\",\"year\":1903}]"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.errors[0].field").value("[1].title"));
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM books WHERE author = 'Batch Author'", Long.class))
+				.isZero();
+	}
+
+	@Test
+	void deletesTheBooksOfABatchThatExistAndListsTheRest() throws Exception {
+		int id = createBook("Chance", "Joseph Conrad", 1913);
+
+		mvc.perform(delete("/api/books/batch").contentType(MediaType.APPLICATION_JSON).content("[" + id + ", 999999]"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.metadata.totalItems").value(1))
+				.andExpect(jsonPath("$.errors.length()").value(1))
+				.andExpect(jsonPath("$.errors[0].field").value("[1]"));
+
+		mvc.perform(get("/api/books/{id}", id)).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void returnsOnlyTheRequestedFieldsAndTheId() throws Exception {
+		createBook("Kidnapped", "Robert Louis Stevenson", 1886);
+
+		mvc.perform(get("/api/books/author/{name}", "Robert Louis Stevenson").param("fields", "title"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data[0].id").isNumber())
+				.andExpect(jsonPath("$.data[0].title").value("Kidnapped"))
+				.andExpect(jsonPath("$.data[0].author").doesNotExist())
+				.andExpect(jsonPath("$.data[0].year").doesNotExist());
+		mvc.perform(get("/api/books").param("fields", "title,isbn"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.errors[0].field").value("fields"));
+	}
+
+	@Test
+	void walksBooksWithTheSameTitleAndAuthorPageByPage() throws Exception {
+		for (int i = 0; i < 12; i++) {
+			createBook("Same Title", "Cursor Author", 2000);
+		}
+
+		List<Integer> ids = new ArrayList<>();
+		String cursor = "";
+		for (int pages = 1; cursor != null; pages++) {
+			String body = mvc.perform(get("/api/books/author/{name}", "Cursor Author").param("after", cursor).param("size", "5"))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString();
+			ids.addAll(JsonPath.read(body, "$.data[*].id"));
+			List<String> next = JsonPath.read(body, "$.metadata[?(@.nextCursor)].nextCursor");
+			cursor = next.isEmpty() ? null : next.get(0);
+			assertThat(JsonPath.<Boolean>read(body, "$.metadata.hasNext")).isEqualTo(cursor != null);
+			assertThat(pages).isLessThanOrEqualTo(3);
+		}
+
+		assertThat(ids).hasSize(12).doesNotHaveDuplicates().isSorted();
+	}
+
+	@Test
+	void rejectsAnInvalidCursor() throws Exception {
+		mvc.perform(get("/api/books").param("after", "not a cursor"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.errors[0].field").value("after"));
+	}
+
+	/**
+	 * Creates a book through the API and returns its id.
+	 */
+	private int createBook(String title, String author, int year) throws Exception {
+		String body = mvc.perform(post("/api/books").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"title\":\"" + title + "\",\"author\":\"" + author + "\",\"year\":" + year + "}"))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getContentAsString();
+		return JsonPath.read(body, "$.data[0].id");
+	}
+
+	private Cache bookCache() {
+		return cacheManager.getCache("books");
+	}
+
+	private void awaitCatalogLoaded() throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (bookCounts.total().isEmpty() && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(bookCounts.total()).isPresent();
+	}
+}
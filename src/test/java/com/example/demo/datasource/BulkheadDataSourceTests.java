@@ -0,0 +1,34 @@
+package com.example.demo.datasource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadDataSourceTests {
+
+	private final BulkheadDataSource bulkhead = new BulkheadDataSource(database(), 1, Duration.ofMillis(10));
+
+	@Test
+	void returnsThePermitOnClose() throws Exception {
+		Connection connection = bulkhead.getConnection();
+
+		assertThat(bulkhead.getAvailablePermits()).isZero();
+		assertThatThrownBy(bulkhead::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+		connection.close();
+
+		assertThat(bulkhead.getAvailablePermits()).isEqualTo(1);
+	}
+
+	private static JdbcDataSource database() {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:bulkhead-" + System.nanoTime());
+		return dataSource;
+	}
+}
@@ -0,0 +1,34 @@
+package com.example.demo.datasource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionTimingDataSourceTests {
+
+	private final List<long[]> released = new ArrayList<>();
+
+	private final ConnectionTimingDataSource timing = new ConnectionTimingDataSource(database(),
+			(waitNanos, holdNanos) -> released.add(new long[]{waitNanos, holdNanos}));
+
+	@Test
+	void reportsTheWaitAndHoldTimesOnClose() throws Exception {
+		Connection connection = timing.getConnection();
+		connection.close();
+
+		assertThat(released).hasSize(1);
+		assertThat(released.get(0)[0]).isNotNegative();
+		assertThat(released.get(0)[1]).isNotNegative();
+	}
+
+	private static JdbcDataSource database() {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:timing-" + System.nanoTime());
+		return dataSource;
+	}
+}
@@ -0,0 +1,41 @@
+package com.example.demo.datasource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class ReleasingConnectionProxyTests {
+
+	private final Connection target = mock(Connection.class);
+
+	private final AtomicInteger releases = new AtomicInteger();
+
+	private final Connection connection = ReleasingConnectionProxy.wrap(target, "Test", releases::incrementAndGet);
+
+	@Test
+	void hasAnIdentityOfItsOwn() {
+		assertThat(connection.equals(connection)).isTrue();
+		assertThat(connection.equals(target)).isFalse();
+		assertThat(connection.hashCode()).isEqualTo(System.identityHashCode(connection));
+		assertThat(connection.toString()).startsWith("Test proxy for target Connection");
+		assertThat(((ConnectionProxy) connection).getTargetConnection()).isSameAs(target);
+	}
+
+	@Test
+	void releasesOnceOnTheFirstCloseEvenIfItFails() throws Exception {
+		doThrow(new SQLException("broken")).when(target).close();
+
+		assertThatThrownBy(connection::close).isInstanceOf(SQLException.class).hasMessage("broken");
+		assertThatThrownBy(connection::close).isInstanceOf(SQLException.class);
+
+		assertThat(releases).hasValue(1);
+	}
+}
@@ -0,0 +1,126 @@
+package com.example.demo.datasource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingDataSourceTests {
+
+	private static final Duration WINDOW = Duration.ofMinutes(1);
+
+	private final DataSource primary = database("primary");
+	private final AtomicBoolean replicaDown = new AtomicBoolean();
+	private final DataSource replica = new DelegatingDataSource(database("replica")) {
+		@Override
+		public Connection getConnection() throws SQLException {
+			if (replicaDown.get()) {
+				throw new SQLException("Connection refused");
+			}
+			return super.getConnection();
+		}
+	};
+
+	private ReplicaRoutingDataSource routing;
+
+	@AfterEach
+	void close() {
+		ReadYourWrites.unbind();
+		routing.close();
+	}
+
+	@Test
+	void routesReadOnlyTransactionsToReplica() {
+		JdbcTemplate jdbcTemplate = route();
+
+		assertThat(read(jdbcTemplate, true)).isEqualTo("replica");
+		assertThat(read(jdbcTemplate, false)).isEqualTo("primary");
+		assertThat(jdbcTemplate.queryForObject("SELECT name FROM marker", String.class)).isEqualTo("primary");
+	}
+
+	@Test
+	void keepsReadsOfTheWritingClientOnPrimary() {
+		JdbcTemplate jdbcTemplate = route();
+		List<Long> writes = new ArrayList<>();
+		ReadYourWrites.bind(0, WINDOW, writes::add);
+
+		assertThat(read(jdbcTemplate, true)).isEqualTo("replica");
+		read(jdbcTemplate, false);
+
+		assertThat(writes).hasSize(1);
+		assertThat(read(jdbcTemplate, true)).isEqualTo("primary");
+
+		// Another client, and work outside any request, keep reading from the replica.
+		client(0);
+		assertThat(read(jdbcTemplate, true)).isEqualTo("replica");
+		ReadYourWrites.unbind();
+		assertThat(read(jdbcTemplate, true)).isEqualTo("replica");
+
+		// The same client on its next request, or on another instance, carrying its write time.
+		client(writes.get(0));
+		assertThat(read(jdbcTemplate, true)).isEqualTo("primary");
+	}
+
+	@Test
+	void releasesTheClientOnceTheWindowHasPassed() {
+		JdbcTemplate jdbcTemplate = route();
+		client(System.currentTimeMillis() - 2 * WINDOW.toMillis());
+
+		assertThat(read(jdbcTemplate, true)).isEqualTo("replica");
+	}
+
+	@Test
+	void fallsBackToPrimaryWhenReplicaIsDown() {
+		JdbcTemplate jdbcTemplate = route();
+		replicaDown.set(true);
+
+		assertThat(read(jdbcTemplate, true)).isEqualTo("primary");
+		assertThat(routing.healthyReplicas()).isEmpty();
+
+		replicaDown.set(false);
+		routing.checkReplicas();
+
+		assertThat(read(jdbcTemplate, true)).isEqualTo("replica");
+	}
+
+	private JdbcTemplate route() {
+		routing = new ReplicaRoutingDataSource(primary, List.of(replica), Duration.ofHours(1));
+		routing.checkReplicas();
+		return new JdbcTemplate(new LazyConnectionDataSourceProxy(routing));
+	}
+
+	private static void client(long lastWriteMillis) {
+		ReadYourWrites.bind(lastWriteMillis, WINDOW, write -> {
+		});
+	}
+
+	private static String read(JdbcTemplate jdbcTemplate, boolean readOnly) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(
+				new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+		transactionTemplate.setReadOnly(readOnly);
+		return transactionTemplate.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM marker", String.class));
+	}
+
+	private static DataSource database(String name) {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:" + name + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE marker (name VARCHAR(16))");
+		jdbcTemplate.update("INSERT INTO marker VALUES (?)", name);
+		return dataSource;
+	}
+}
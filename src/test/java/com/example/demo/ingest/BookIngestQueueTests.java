@@ -0,0 +1,137 @@
+package com.example.demo.ingest;
+
+import com.example.demo.dtos.IngestStatus;
+import com.example.demo.exceptions.IngestQueueFullException;
+import com.example.demo.models.Book;
+import com.example.demo.services.BookService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookIngestQueueTests {
+
+	private final BookService bookService = mock(BookService.class);
+
+	private final AtomicInteger nextId = new AtomicInteger(1);
+
+	private final CountDownLatch firstBatchTaken = new CountDownLatch(1);
+
+	private final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+
+	private BookIngestQueue queue;
+
+	@AfterEach
+	void stop() {
+		releaseFirstBatch.countDown();
+		if (queue != null) {
+			queue.stop();
+		}
+	}
+
+	@Test
+	void coalescesQueuedBooksIntoOneBatch() throws InterruptedException {
+		holdFirstBatch();
+		queue = start(100);
+
+		IngestStatus first = queue.submit(book("First"));
+		assertThat(firstBatchTaken.await(5, TimeUnit.SECONDS)).isTrue();
+		List<IngestStatus> rest = List.of(queue.submit(book("A")), queue.submit(book("B")), queue.submit(book("C")));
+		assertThat(queue.status(rest.get(0).handle()).state()).isEqualTo(IngestStatus.State.QUEUED);
+		releaseFirstBatch.countDown();
+		queue.stop();
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<Book>> batches = ArgumentCaptor.forClass(List.class);
+		verify(bookService, times(2)).createBooks(batches.capture());
+		assertThat(batches.getAllValues()).extracting(List::size).containsExactly(1, 3);
+		assertThat(queue.status(first.handle()).bookId()).isEqualTo(1);
+		for (IngestStatus status : rest) {
+			assertThat(queue.status(status.handle()).state()).isEqualTo(IngestStatus.State.CREATED);
+		}
+	}
+
+	@Test
+	void rejectsBooksWhenTheQueueIsFull() throws InterruptedException {
+		holdFirstBatch();
+		queue = start(1);
+
+		queue.submit(book("Taken"));
+		assertThat(firstBatchTaken.await(5, TimeUnit.SECONDS)).isTrue();
+		queue.submit(book("Queued"));
+
+		assertThatThrownBy(() -> queue.submit(book("Rejected"))).isInstanceOf(IngestQueueFullException.class);
+	}
+
+	@Test
+	void badBookFailsAlone() {
+		doAnswer(invocation -> {
+			List<Book> books = invocation.getArgument(0);
+			if (books.stream().anyMatch(book -> book.getTitle().equals("Bad"))) {
+				throw new IllegalStateException("batch failed");
+			}
+			books.forEach(book -> book.setId(nextId.getAndIncrement()));
+			return books;
+		}).when(bookService).createBooks(anyList());
+		when(bookService.createBook(any())).thenAnswer(invocation -> {
+			Book book = invocation.getArgument(0);
+			if (book.getTitle().equals("Bad")) {
+				throw new IllegalStateException("bad book");
+			}
+			book.setId(nextId.getAndIncrement());
+			return book;
+		});
+		queue = start(100);
+
+		IngestStatus good = queue.submit(book("Good"));
+		IngestStatus bad = queue.submit(book("Bad"));
+		queue.stop();
+
+		assertThat(queue.status(good.handle()).state()).isEqualTo(IngestStatus.State.CREATED);
+		assertThat(queue.status(good.handle()).bookId()).isNotNull();
+		assertThat(queue.status(bad.handle()).state()).isEqualTo(IngestStatus.State.FAILED);
+	}
+
+	private BookIngestQueue start(int capacity) {
+		BookIngestQueue started = new BookIngestQueue(bookService, true, capacity, 100, Duration.ofSeconds(5),
+				Duration.ofMinutes(1), new SimpleMeterRegistry());
+		started.start();
+		return started;
+	}
+
+	private void holdFirstBatch() {
+		doAnswer(invocation -> {
+			List<Book> books = invocation.getArgument(0);
+			if (firstBatchTaken.getCount() > 0) {
+				firstBatchTaken.countDown();
+				releaseFirstBatch.await();
+			}
+			books.forEach(book -> book.setId(nextId.getAndIncrement()));
+			return books;
+		}).when(bookService).createBooks(anyList());
+	}
+
+	private static Book book(String title) {
+		Book book = new Book();
+		book.setTitle(title);
+		book.setAuthor("Author");
+		book.setYear(2000);
+		return book;
+	}
+}
@@ -0,0 +1,190 @@
+package com.example.demo.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Closed-loop load test against a running instance. Start the application once with
+ * {@code spring.threads.virtual.enabled=false} and once with {@code true}, and after each start run:
+ * <pre>
+ * mvn test -Dtest=BookLoadTests -Dloadtest.baseUrl=http://localhost:8080 -Dloadtest.threads=platform|virtual
+ *     [-Dloadtest.path=/api/books/1] [-Dloadtest.seconds=30] [-Dloadtest.maxRejectionRate=0.25] [-Dloadtest.maxP99Millis=1000]
+ * </pre>
+ * Each run logs throughput and latency percentiles per concurrency level and writes them to
+ * {@code target/loadtest-<threads>.json}; once both files exist, the second run also logs how the two compare.
+ * Responses turned away by admission control, 429 and 503, count as rejected and stay out of the percentiles,
+ * as do failed requests. A level fails if more than {@code maxRejectionRate} of its requests go unserved or its
+ * p99 exceeds {@code maxP99Millis}. All load comes from one address, so keep the per-client rate limit off, as
+ * it is by default, to load the adaptive concurrency limit instead.
+ */
+@EnabledIfSystemProperty(named = "loadtest.baseUrl", matches = ".+")
+class BookLoadTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(BookLoadTests.class);
+
+	private static final String BASE_URL = System.getProperty("loadtest.baseUrl");
+	private static final String PATH = System.getProperty("loadtest.path", "/api/books?page=1&size=10");
+	private static final Duration DURATION = Duration.ofSeconds(Long.getLong("loadtest.seconds", 30));
+	private static final String THREADS = System.getProperty("loadtest.threads", "unlabelled");
+	private static final double MAX_REJECTION_RATE = Double.parseDouble(System.getProperty("loadtest.maxRejectionRate", "0.25"));
+	private static final double MAX_P99_MILLIS = Double.parseDouble(System.getProperty("loadtest.maxP99Millis", "1000"));
+
+	private static final Path RESULTS = Path.of(System.getProperty("basedir", "."), "target");
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+	private static final List<LoadReport> reports = new ArrayList<>();
+
+	@ParameterizedTest
+	@ValueSource(ints = {1_000, 10_000})
+	void sustainsConcurrentClients(int clients) {
+		LoadReport report = run(clients);
+		logger.info("{} threads: {}", THREADS, report);
+		reports.add(report);
+
+		assertThat(report.rejectionRate()).isLessThanOrEqualTo(MAX_REJECTION_RATE);
+		assertThat(report.p99Millis()).isLessThanOrEqualTo(MAX_P99_MILLIS);
+	}
+
+	@AfterAll
+	static void writeResults() throws IOException {
+		if (reports.isEmpty()) {
+			return;
+		}
+		Files.createDirectories(RESULTS);
+		Path result = RESULTS.resolve("loadtest-" + THREADS + ".json");
+		objectMapper.writerWithDefaultPrettyPrinter()
+				.writeValue(result.toFile(), new LoadRun(THREADS, PATH, DURATION.toSeconds(), reports));
+		logger.info("Load test results written to {}.", result);
+
+		String other = switch (THREADS) {
+			case "platform" -> "virtual";
+			case "virtual" -> "platform";
+			default -> null;
+		};
+		Path otherResult = RESULTS.resolve("loadtest-" + other + ".json");
+		if (other != null && Files.exists(otherResult)) {
+			compare(objectMapper.readValue(otherResult.toFile(), LoadRun.class));
+		}
+	}
+
+	/**
+	 * Logs, per concurrency level both runs share, how this run compares with the other thread mode.
+	 */
+	private static void compare(LoadRun other) {
+		if (!other.path().equals(PATH)) {
+			logger.warn("The {} run loaded {}, not {}; not comparing.", other.threads(), other.path(), PATH);
+			return;
+		}
+		for (LoadReport report : reports) {
+			other.reports().stream().filter(theirs -> theirs.clients() == report.clients()).findFirst().ifPresent(theirs ->
+					logger.info("clients={}: {} {} req/s, p99 {} ms, {}% rejected; {} {} req/s, p99 {} ms, {}% rejected",
+							report.clients(),
+							THREADS, format(report.throughput()), format(report.p99Millis()), format(100 * report.rejectionRate()),
+							other.threads(), format(theirs.throughput()), format(theirs.p99Millis()), format(100 * theirs.rejectionRate())));
+		}
+	}
+
+	private static String format(double value) {
+		return String.format("%.1f", value);
+	}
+
+	static LoadReport run(int clients) {
+		HttpClient client = HttpClient.newBuilder()
+				.connectTimeout(Duration.ofSeconds(10))
+				.build();
+		HttpRequest request = HttpRequest.newBuilder(URI.create(BASE_URL + PATH))
+				.timeout(Duration.ofSeconds(30))
+				.GET()
+				.build();
+
+		ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+		AtomicLong failures = new AtomicLong();
+		AtomicLong rejected = new AtomicLong();
+		long deadline = System.nanoTime() + DURATION.toNanos();
+
+		CompletableFuture<?>[] loops = new CompletableFuture<?>[clients];
+		for (int i = 0; i < clients; i++) {
+			CompletableFuture<Void> done = new CompletableFuture<>();
+			next(client, request, deadline, latencies, failures, rejected, done);
+			loops[i] = done;
+		}
+		CompletableFuture.allOf(loops).join();
+
+		long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+		return new LoadReport(clients, sorted.length, failures.get(), rejected.get(),
+				sorted.length / (double) DURATION.toSeconds(),
+				percentile(sorted, 0.50), percentile(sorted, 0.99));
+	}
+
+	/**
+	 * Issues one request and, once it completes, the next one, until the deadline passes.
+	 */
+	private static void next(HttpClient client, HttpRequest request, long deadline, ConcurrentLinkedQueue<Long> latencies,
+			AtomicLong failures, AtomicLong rejected, CompletableFuture<Void> done) {
+		if (System.nanoTime() >= deadline) {
+			done.complete(null);
+			return;
+		}
+		long started = System.nanoTime();
+		client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+				.whenComplete((response, error) -> {
+					if (error != null || response.statusCode() >= 500 && response.statusCode() != 503) {
+						failures.incrementAndGet();
+					} else if (response.statusCode() == 429 || response.statusCode() == 503) {
+						rejected.incrementAndGet();
+					} else {
+						latencies.add(System.nanoTime() - started);
+					}
+					next(client, request, deadline, latencies, failures, rejected, done);
+				});
+	}
+
+	private static double percentile(long[] sorted, double quantile) {
+		if (sorted.length == 0) {
+			return Double.NaN;
+		}
+		int index = (int) Math.ceil(quantile * sorted.length) - 1;
+		return sorted[Math.max(0, index)] / 1_000_000.0;
+	}
+
+	record LoadRun(String threads, String path, long seconds, List<LoadReport> reports) {
+	}
+
+	record LoadReport(int clients, long completed, long failures, long rejected, double throughput,
+			double p50Millis, double p99Millis) {
+
+		/**
+		 * Share of the requests that were not served, because admission control turned them away or they failed.
+		 */
+		double rejectionRate() {
+			long requests = completed + failures + rejected;
+			return requests == 0 ? 1.0 : (failures + rejected) / (double) requests;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("clients=%d completed=%d failures=%d rejected=%d throughput=%.1f req/s p50=%.2f ms p99=%.2f ms",
+					clients, completed, failures, rejected, throughput, p50Millis, p99Millis);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.example.demo.middlewares;
+
+import com.example.demo.dtos.ResponseBodyDTO;
+import com.example.demo.exceptions.BookNotFoundException;
+import com.example.demo.exceptions.InvalidRequestParameterException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GlobalExceptionHandlerTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final GlobalExceptionHandler handler = new GlobalExceptionHandler(meterRegistry);
+
+	@Test
+	void countsErrorsByHandlerBranch() {
+		handler.handleBookNotFoundException(new BookNotFoundException("Book not found."));
+		handler.handleBookNotFoundException(new BookNotFoundException("Book not found."));
+		handler.handleInvalidRequestParameterException(new InvalidRequestParameterException("after", "Invalid cursor."));
+		handler.handleGenericException();
+
+		assertThat(meterRegistry.get("bookstore.errors").tag("handler", "not_found").tag("status", "404").counter().count())
+				.isEqualTo(2);
+		assertThat(meterRegistry.get("bookstore.errors").tag("handler", "invalid_parameter").counter().count())
+				.isEqualTo(1);
+		assertThat(meterRegistry.get("bookstore.errors").tag("handler", "unexpected").tag("status", "500").counter().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void answersConnectionTimeoutsWithServiceUnavailable() {
+		ResponseEntity<ResponseBodyDTO> response = handler.handleDatabaseUnavailableException(
+				new CannotCreateTransactionException("Could not open JPA EntityManager for transaction",
+						new SQLTransientConnectionException("Connection is not available, request timed out after 30000ms.")));
+
+		assertThat(response.getStatusCode().value()).isEqualTo(503);
+		assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+		assertThat(response.getBody().getStatus()).isEqualTo(503);
+		assertThat(meterRegistry.get("bookstore.errors").tag("handler", "database_unavailable").tag("status", "503")
+				.counter().count()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,85 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the batch writes on H2 in chunks of two, so that every batch spans several chunks.
+ */
+@JdbcTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:book-batch;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR;IGNORE_UNKNOWN_SETTINGS=TRUE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"bookstore.batch.chunk-size=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BookBatchRepository.class, BookBatchRepositoryTests.Metrics.class})
+class BookBatchRepositoryTests {
+
+	@Autowired
+	private BookBatchRepository bookBatchRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void insertsEveryBookAndSetsItsGeneratedId() {
+		List<Book> books = IntStream.rangeClosed(1, 5).mapToObj(i -> book("Title " + i, i == 3 ? null : "About " + i)).toList();
+
+		List<Book> created = bookBatchRepository.insertAll(books);
+
+		assertThat(created).extracting(Book::getId).doesNotContainNull().doesNotHaveDuplicates();
+		for (Book book : created) {
+			Map<String, Object> row = jdbcTemplate.queryForMap("SELECT * FROM books WHERE id = ?", book.getId());
+			assertThat(row).containsEntry("title", book.getTitle())
+					.containsEntry("author", "Joseph Conrad")
+					.containsEntry("description", book.getDescription())
+					.containsEntry("year", 1904)
+					.containsEntry("version", 0L);
+			assertThat(row.get("updated_at")).isNotNull();
+		}
+	}
+
+	@Test
+	void deletesTheIdsThatExistAndReturnsThem() {
+		List<Integer> ids = bookBatchRepository.insertAll(List.of(book("Nostromo", null), book("Lord Jim", null),
+				book("Victory", null))).stream().map(Book::getId).toList();
+
+		List<Integer> deleted = bookBatchRepository.deleteAllById(List.of(ids.get(0), -1, ids.get(2), -2));
+
+		assertThat(deleted).containsExactlyInAnyOrder(ids.get(0), ids.get(2));
+		assertThat(jdbcTemplate.queryForList("SELECT id FROM books WHERE id IN (?, ?, ?)", Integer.class,
+				ids.get(0), ids.get(1), ids.get(2))).containsExactly(ids.get(1));
+	}
+
+	private static Book book(String title, String description) {
+		Book book = new Book();
+		book.setTitle(title);
+		book.setAuthor("Joseph Conrad");
+		book.setDescription(description);
+		book.setYear(1904);
+		return book;
+	}
+
+	static class Metrics {
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:book-export;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR;IGNORE_UNKNOWN_SETTINGS=TRUE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password="
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BookExportRepository.class, BookExportRepositoryTests.Metrics.class})
+class BookExportRepositoryTests {
+
+	@Autowired
+	private BookExportRepository bookExportRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void streamsTheMatchingBooksInIdOrder() {
+		jdbcTemplate.update("INSERT INTO books (id, title, author, year) VALUES "
+				+ "(3, 'Lord Jim', 'Joseph Conrad', 1900), (1, 'Nostromo', 'Joseph Conrad', 1904), (2, 'Kim', 'Rudyard Kipling', 1901)");
+
+		List<Book> books = new ArrayList<>();
+		bookExportRepository.forEach("Joseph Conrad", null, books::add);
+
+		assertThat(books).extracting(Book::getId).containsExactly(1, 3);
+		assertThat(books.get(0).getVersion()).isZero();
+		assertThat(books.get(0).getUpdatedAt()).isNotNull();
+	}
+
+	static class Metrics {
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package com.example.demo.repositories;
+
+import com.example.demo.utils.BookListingQuery;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every {@link BookRepository} query against a seeded database built by the Flyway migrations and fails
+ * if the plan of any statement it issues scans the whole table.
+ */
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:query-plans;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR;IGNORE_UNKNOWN_SETTINGS=TRUE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.demo.repositories.BookRepositoryQueryPlanTests$RecordingStatementInspector"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class BookRepositoryQueryPlanTests {
+
+	// Shapes that read the whole table by design: the unfiltered listing and its count, and substring title
+	// searches, which the in-memory search index answers before falling back to them.
+	private static final Set<String> FULL_SCAN_BY_DESIGN = Set.of(
+			"findAllBy",
+			"findSliceBy",
+			"findByTitleContainingIgnoreCase",
+			"findSliceByTitleContainingIgnoreCase",
+			"countByTitleContainingIgnoreCase");
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final Set<String> checked = new HashSet<>();
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("INSERT INTO books (title, author, description, year) "
+				+ "SELECT 'Title ' || r.x, 'Author ' || MOD(r.x, 50), NULL, 1900 + MOD(r.x, 120) FROM SYSTEM_RANGE(1, 5000) r(x)");
+		jdbcTemplate.execute("ANALYZE");
+	}
+
+	@Test
+	void repositoryQueriesUseAnIndex() {
+		Pageable secondPage = PageRequest.of(1, 10);
+
+		assertIndexed("findById", () -> bookRepository.findById(42));
+		assertIndexed("findByIdIn", () -> bookRepository.findByIdIn(List.of(1, 2, 3)));
+		assertIndexed("findVersionById", () -> bookRepository.findVersionById(42));
+		assertIndexed("findByAuthor", () -> bookRepository.findByAuthor("Author 7", secondPage));
+		assertIndexed("findSliceByAuthor", () -> bookRepository.findSliceByAuthor("Author 7", secondPage));
+		assertIndexed("findByIdGreaterThanOrderByIdAsc",
+				() -> bookRepository.findByIdGreaterThanOrderByIdAsc(4000, PageRequest.ofSize(10)));
+		assertIndexed("findByAuthorAndIdGreaterThanOrderByIdAsc",
+				() -> bookRepository.findByAuthorAndIdGreaterThanOrderByIdAsc("Author 7", 1000, PageRequest.ofSize(10)));
+		assertIndexed("findByTitleContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc",
+				() -> bookRepository.findByTitleContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc("title 4", 4000, PageRequest.ofSize(10)));
+		assertIndexed("deleteByIdReturningCount", () -> bookRepository.deleteByIdReturningCount(42));
+
+		Set<String> declared = new HashSet<>();
+		Arrays.stream(BookRepository.class.getDeclaredMethods()).map(Method::getName).forEach(declared::add);
+		declared.removeAll(FULL_SCAN_BY_DESIGN);
+		assertThat(checked).as("every BookRepository query is checked or exempt").containsAll(declared);
+	}
+
+	// H2 cannot scan an index backwards or merge the ranges of an IN list in order, both of which MySQL does,
+	// so only ascending listings are checked and the multi-author one for its index alone.
+	@Test
+	void acceptedListingsReadAnIndexInOrder() {
+		assertListing(BookListingQuery.parse("title", null, null, null, null), "idx_books_title_id", true);
+		assertListing(BookListingQuery.parse("author", null, null, null, null), "idx_books_author_id", true);
+		assertListing(BookListingQuery.parse("year", null, null, null, null), "idx_books_year_id", true);
+		assertListing(BookListingQuery.parse(null, 1950, 1960, null, null), "idx_books_year_id", true);
+		assertListing(BookListingQuery.parse(null, null, null, null, "Title 4"), "idx_books_title_id", true);
+		assertListing(BookListingQuery.parse(null, 1950, null, List.of("Author 7"), "Title 1"), "idx_books_author_id", true);
+		assertListing(BookListingQuery.parse(null, null, 2000, List.of("Author 7", "Author 8"), null), "idx_books_author_id", false);
+	}
+
+	private void assertListing(BookListingQuery query, String index, boolean checkOrder) {
+		RecordingStatementInspector.statements.clear();
+		bookRepository.findSummaries(query.specification(), PageRequest.of(1, 10, query.sort()));
+		if (query.isFiltered()) {
+			// Unfiltered, the count reads the whole table like the exempt findAllBy count.
+			bookRepository.count(query.specification());
+		}
+
+		for (String sql : RecordingStatementInspector.statements) {
+			String plan = explain(sql);
+			assertThat(plan).as(sql).contains(index).doesNotContain("tableScan");
+			if (checkOrder && sql.contains("order by")) {
+				assertThat(plan).as(sql).contains("index sorted");
+			}
+		}
+	}
+
+	private void assertIndexed(String method, Runnable query) {
+		RecordingStatementInspector.statements.clear();
+		query.run();
+
+		assertThat(RecordingStatementInspector.statements).as(method).isNotEmpty();
+		for (String sql : RecordingStatementInspector.statements) {
+			assertThat(explain(sql)).as("%s: %s", method, sql).doesNotContain("tableScan");
+		}
+		checked.add(method);
+	}
+
+	private String explain(String sql) {
+		return jdbcTemplate.query(connection -> connection.prepareStatement("EXPLAIN " + sql),
+				(resultSet, row) -> resultSet.getString(1)).get(0);
+	}
+
+	public static class RecordingStatementInspector implements StatementInspector {
+
+		static final List<String> statements = new CopyOnWriteArrayList<>();
+
+		@Override
+		public String inspect(String sql) {
+			statements.add(sql);
+			return sql;
+		}
+	}
+}
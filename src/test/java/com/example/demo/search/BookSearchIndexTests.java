@@ -0,0 +1,74 @@
+package com.example.demo.search;
+
+import com.example.demo.dtos.BookSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookSearchIndexTests {
+
+	private BookSearchIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new BookSearchIndex(true);
+		index.onLoaded(book(1, "The Lord of the Rings", "J. R. R. Tolkien"));
+		index.onLoaded(book(2, "Lord Jim", "Joseph Conrad"));
+		index.onLoaded(book(3, "Warlords", "Simon Scarrow"));
+		index.onLoaded(book(4, "Les Misérables", "Victor Hugo"));
+		index.onLoadCompleted();
+	}
+
+	@Test
+	void ranksPrefixBeforeWordBeforeSubstring() {
+		assertThat(index.search("lord")).contains(List.of(2, 1, 3));
+	}
+
+	@Test
+	void foldsCaseAndAccents() {
+		assertThat(index.search("MISERABLES")).contains(List.of(4));
+	}
+
+	@Test
+	void dropsRemovedAndAddsCreatedBooks() {
+		index.onDeleted(2);
+		index.onCreated(book(5, "Lord of the Flies", "William Golding"));
+
+		assertThat(index.search("lord")).contains(List.of(5, 1, 3));
+	}
+
+	@Test
+	void indexesABookCreatedDuringTheLoadOnce() {
+		index.onCreated(book(5, "Lord of the Flies", "William Golding"));
+		index.onLoaded(book(5, "Lord of the Flies", "William Golding"));
+
+		assertThat(index.search("flies")).contains(List.of(5));
+	}
+
+	@Test
+	void compactsPostingsOnceMostOfThemAreDeleted() {
+		for (int id = 10; id < 110; id++) {
+			index.onCreated(book(id, "Dune " + id, "Frank Herbert"));
+		}
+		for (int id = 10; id < 109; id++) {
+			index.onDeleted(id);
+		}
+		// Deleting a book twice must not count it twice.
+		index.onDeleted(10);
+
+		assertThat(index.search("dune")).contains(List.of(109));
+	}
+
+	@Test
+	void leavesShortQueriesToTheDatabase() {
+		assertThat(index.search("lo")).isEqualTo(Optional.empty());
+	}
+
+	private static BookSummary book(int id, String title, String author) {
+		return new BookSummary(id, title, author, 2000);
+	}
+}
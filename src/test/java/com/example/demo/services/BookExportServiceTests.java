@@ -0,0 +1,73 @@
+package com.example.demo.services;
+
+import com.example.demo.models.Book;
+import com.example.demo.repositories.BookExportRepository;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class BookExportServiceTests {
+
+	private final BookExportRepository bookExportRepository = mock(BookExportRepository.class);
+
+	// Configured as Spring Boot configures the application's mapper.
+	private final BookExportService bookExportService = new BookExportService(bookExportRepository,
+			Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build());
+
+	@Test
+	void writesOneRecordPerLine() throws Exception {
+		stream(book(1, "Nostromo"), book(2, "Lord Jim"));
+
+		assertThat(export(BookExportService.Format.NDJSON)).isEqualTo(
+				"{\"id\":1,\"title\":\"Nostromo\",\"author\":\"Joseph Conrad\",\"description\":null,\"year\":1904,\"version\":3,\"updatedAt\":\"2024-05-01T10:15:30Z\"}\n"
+						+ "{\"id\":2,\"title\":\"Lord Jim\",\"author\":\"Joseph Conrad\",\"description\":null,\"year\":1904,\"version\":3,\"updatedAt\":\"2024-05-01T10:15:30Z\"}\n");
+	}
+
+	@Test
+	void writesTheSameFieldsAsCsv() throws Exception {
+		stream(book(1, "Heart of Darkness, and Other Tales"));
+
+		assertThat(export(BookExportService.Format.CSV)).isEqualTo(
+				"id,title,author,description,year,version,updatedAt\r\n"
+						+ "1,\"Heart of Darkness, and Other Tales\",Joseph Conrad,,1904,3,2024-05-01T10:15:30Z\r\n");
+	}
+
+	@SuppressWarnings("unchecked")
+	private void stream(Book... books) {
+		doAnswer(invocation -> {
+			Consumer<Book> consumer = invocation.getArgument(2);
+			for (Book book : books) {
+				consumer.accept(book);
+			}
+			return null;
+		}).when(bookExportRepository).forEach(isNull(), isNull(), any(Consumer.class));
+	}
+
+	private String export(BookExportService.Format format) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		bookExportService.export(format, null, null, out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	private static Book book(int id, String title) {
+		Book book = new Book();
+		book.setId(id);
+		book.setTitle(title);
+		book.setAuthor("Joseph Conrad");
+		book.setYear(1904);
+		book.setVersion(3L);
+		book.setUpdatedAt(Instant.parse("2024-05-01T10:15:30Z"));
+		return book;
+	}
+}
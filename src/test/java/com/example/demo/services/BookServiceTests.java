@@ -0,0 +1,228 @@
+package com.example.demo.services;
+
+import com.example.demo.cache.ResponseCache;
+import com.example.demo.catalog.BookCatalog;
+import com.example.demo.catalog.BookCounts;
+import com.example.demo.catalog.BookExistenceFilter;
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.exceptions.BookNotFoundException;
+import com.example.demo.models.Book;
+import com.example.demo.repositories.BookBatchRepository;
+import com.example.demo.repositories.BookRepository;
+import com.example.demo.search.BookSearchIndex;
+import com.example.demo.utils.CountMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookServiceTests {
+
+	private static final int CALLERS = 50;
+
+	private static final Pageable FIRST_PAGE = PageRequest.of(0, 10);
+
+	private final BookRepository bookRepository = mock(BookRepository.class);
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+	@AfterEach
+	void stop() {
+		release.countDown();
+		executor.shutdownNow();
+	}
+
+	@Test
+	void concurrentReadsOfAnAuthorShareOneQuery() throws Exception {
+		Slice<BookSummary> page = new SliceImpl<>(List.of(new BookSummary(1, "Nostromo", "Joseph Conrad", 1904)));
+		when(bookRepository.findSliceByAuthor(eq("Joseph Conrad"), any())).thenAnswer(invocation -> {
+			release.await();
+			return page;
+		});
+		BookService bookService = bookService(Duration.ofSeconds(10));
+
+		List<Future<Slice<BookSummary>>> results = new ArrayList<>();
+		for (int i = 0; i < CALLERS; i++) {
+			results.add(executor.submit(() -> bookService.getBookByAuthor("Joseph Conrad", FIRST_PAGE, CountMode.NONE)));
+		}
+		awaitCoalesced("author", CALLERS - 1);
+		release.countDown();
+
+		for (Future<Slice<BookSummary>> result : results) {
+			assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(page);
+		}
+		verify(bookRepository, times(1)).findSliceByAuthor("Joseph Conrad", FIRST_PAGE);
+
+		// Nothing is kept once the query completed: the next caller queries again.
+		bookService.getBookByAuthor("Joseph Conrad", FIRST_PAGE, CountMode.NONE);
+		verify(bookRepository, times(2)).findSliceByAuthor("Joseph Conrad", FIRST_PAGE);
+	}
+
+	@Test
+	void concurrentReadsOfAMissingBookShareOneNotFound() throws Exception {
+		when(bookRepository.findById(42)).thenAnswer(invocation -> {
+			release.await();
+			return Optional.empty();
+		});
+
+		try (AnnotationConfigApplicationContext context = cachingContext(new CaffeineCacheManager("books"))) {
+			BookService bookService = context.getBean(BookService.class);
+
+			List<Future<Book>> results = new ArrayList<>();
+			for (int i = 0; i < CALLERS; i++) {
+				results.add(executor.submit(() -> bookService.getBookById(42)));
+			}
+			awaitCoalesced("book", CALLERS - 1);
+			release.countDown();
+
+			for (Future<Book> result : results) {
+				assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(BookNotFoundException.class);
+			}
+			verify(bookRepository, times(1)).findById(42);
+		}
+	}
+
+	@Test
+	void followerRunsItsOwnQueryWhenTheSharedOneTimesOut() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		when(bookRepository.findSliceByTitleContainingIgnoreCase(anyString(), any())).thenAnswer(invocation -> {
+			if (calls.getAndIncrement() == 0) {
+				release.await();
+			}
+			return new SliceImpl<>(List.of(new BookSummary(1, "Nostromo", "Joseph Conrad", 1904)));
+		});
+		BookService bookService = bookService(Duration.ofMillis(100));
+
+		Future<Slice<BookSummary>> leader = executor.submit(
+				() -> bookService.getBookByTitle("nostromo", FIRST_PAGE, CountMode.NONE));
+		while (calls.get() == 0) {
+			Thread.onSpinWait();
+		}
+
+		assertThat(bookService.getBookByTitle("nostromo", FIRST_PAGE, CountMode.NONE)).hasSize(1);
+		assertThat(counter("title", "timeout")).isEqualTo(1);
+		assertThat(leader.isDone()).isFalse();
+		release.countDown();
+		assertThat(leader.get(5, TimeUnit.SECONDS)).hasSize(1);
+	}
+
+	@Test
+	void deleteDuringACacheMissLeavesNoStaleEntry() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		when(bookRepository.findById(7)).thenAnswer(invocation -> {
+			loading.countDown();
+			release.await();
+			return Optional.of(new Book());
+		});
+		when(bookRepository.deleteByIdReturningCount(7)).thenReturn(1);
+
+		CacheManager cacheManager = new CaffeineCacheManager("books");
+		try (AnnotationConfigApplicationContext context = cachingContext(cacheManager)) {
+			BookService bookService = context.getBean(BookService.class);
+
+			Future<Book> load = executor.submit(() -> bookService.getBookById(7));
+			assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+			Future<?> delete = executor.submit(() -> bookService.deleteBook(7));
+			verify(bookRepository, timeout(5000)).deleteByIdReturningCount(7);
+			release.countDown();
+
+			load.get(5, TimeUnit.SECONDS);
+			delete.get(5, TimeUnit.SECONDS);
+			assertThat(cacheManager.getCache("books").get(7)).isNull();
+		}
+	}
+
+	@Test
+	void createIgnoresAnIdInTheBody() {
+		when(bookRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+		Book book = new Book();
+		book.setId(7);
+		book.setAuthor("Joseph Conrad");
+
+		assertThat(bookService(Duration.ofSeconds(10)).createBook(book).getId()).isNull();
+	}
+
+	/**
+	 * A context with the given cache manager and Spring's caching proxy around the service, as in the application.
+	 */
+	private AnnotationConfigApplicationContext cachingContext(CacheManager cacheManager) {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.register(CachingConfig.class);
+		context.registerBean(CacheManager.class, () -> cacheManager);
+		context.registerBean(BookService.class, () -> bookService(cacheManager, Duration.ofSeconds(10)));
+		context.refresh();
+		return context;
+	}
+
+	private BookService bookService(Duration timeout) {
+		CacheManager cacheManager = mock(CacheManager.class);
+		when(cacheManager.getCache("books")).thenReturn(mock(Cache.class));
+		return bookService(cacheManager, timeout);
+	}
+
+	private BookService bookService(CacheManager cacheManager, Duration timeout) {
+		BookExistenceFilter bookExistenceFilter = mock(BookExistenceFilter.class);
+		when(bookExistenceFilter.mightContainId(anyLong())).thenReturn(true);
+		when(bookExistenceFilter.mightContainAuthor(anyString())).thenReturn(true);
+		return new BookService(bookRepository, mock(BookBatchRepository.class), mock(BookCatalog.class),
+				mock(BookSearchIndex.class), bookExistenceFilter, mock(BookCounts.class), mock(Validator.class),
+				cacheManager, mock(ResponseCache.class), mock(PlatformTransactionManager.class), meterRegistry,
+				true, timeout);
+	}
+
+	private void awaitCoalesced(String name, int expected) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (counter(name, "coalesced") < expected && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(counter(name, "coalesced")).isEqualTo(expected);
+	}
+
+	private double counter(String name, String outcome) {
+		return meterRegistry.get("bookstore.single-flight.calls").tag("name", name).tag("outcome", outcome)
+				.counter().count();
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@EnableCaching
+	static class CachingConfig {
+	}
+}
@@ -0,0 +1,44 @@
+package com.example.demo.utils;
+
+import com.example.demo.exceptions.InvalidRequestParameterException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorCodecTests {
+
+	@Test
+	void decodesWhatItEncodes() {
+		assertThat(CursorCodec.decode(CursorCodec.encode(42))).isEqualTo(42);
+		assertThat(CursorCodec.decode(CursorCodec.encode(Integer.MAX_VALUE))).isEqualTo(Integer.MAX_VALUE);
+	}
+
+	@Test
+	void startsFromTheBeginningOnAnEmptyCursor() {
+		assertThat(CursorCodec.decode("")).isZero();
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"not a cursor", "id:42", "%%%"})
+	void rejectsGarbage(String cursor) {
+		assertThatThrownBy(() -> CursorCodec.decode(cursor))
+				.isInstanceOf(InvalidRequestParameterException.class)
+				.hasMessage("Invalid cursor.");
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"page:3", "id:", "id:-1", "id:abc", "id:99999999999"})
+	void rejectsTamperedCursors(String value) {
+		String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+
+		assertThatThrownBy(() -> CursorCodec.decode(cursor))
+				.isInstanceOf(InvalidRequestParameterException.class)
+				.hasMessage("Invalid cursor.");
+	}
+}
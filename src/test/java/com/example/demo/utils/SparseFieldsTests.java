@@ -0,0 +1,36 @@
+package com.example.demo.utils;
+
+import com.example.demo.dtos.BookSummary;
+import com.example.demo.exceptions.InvalidRequestParameterException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SparseFieldsTests {
+
+	private static final List<BookSummary> BOOKS = List.of(new BookSummary(7, "Nostromo", "Joseph Conrad", 1904));
+
+	@Test
+	void keepsOnlyTheRequestedFieldsAndTheId() {
+		List<?> rows = SparseFields.parse(" Title ,year").apply(BOOKS);
+
+		assertThat(rows).hasSize(1);
+		assertThat(rows.get(0)).isEqualTo(Map.of("id", 7, "title", "Nostromo", "year", 1904));
+	}
+
+	@Test
+	void returnsTheBooksUnchangedForEveryField() {
+		assertThat(SparseFields.parse(null).apply(BOOKS)).isSameAs(BOOKS);
+		assertThat(SparseFields.parse("title,author,year").apply(BOOKS)).isSameAs(BOOKS);
+	}
+
+	@Test
+	void rejectsAnUnknownField() {
+		assertThatThrownBy(() -> SparseFields.parse("title,isbn"))
+				.isInstanceOf(InvalidRequestParameterException.class);
+	}
+}